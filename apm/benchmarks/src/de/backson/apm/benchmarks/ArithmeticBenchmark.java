@@ -0,0 +1,123 @@
+package de.backson.apm.benchmarks;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.backson.apm.DecimalInt;
+
+// add, subtract, multiply, multiplyAdd, divide and compare on operands with the given number of digits,
+// every operation of DecimalInt is followed by the same operation of BigInteger as the baseline
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArithmeticBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "100000", "1000000"})
+	int digits;
+
+	private DecimalInt a;
+	private DecimalInt b;
+	// differs from a only in the last digit, so that compare has to look at all limbs
+	private DecimalInt c;
+	// twice as many digits as a, for a division by a
+	private DecimalInt dividend;
+
+	private BigInteger bigA;
+	private BigInteger bigB;
+	private BigInteger bigC;
+	private BigInteger bigDividend;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(digits);
+		String s = Operands.randomDigits(random, digits);
+		String t = Operands.randomDigits(random, digits);
+		String u = s.substring(0, digits - 1) + (char)('0' + (s.charAt(digits - 1) - '0' + 1) % 10);
+		String v = Operands.randomDigits(random, 2 * digits);
+
+		a = new DecimalInt(s);
+		b = new DecimalInt(t);
+		c = new DecimalInt(u);
+		dividend = new DecimalInt(v);
+		bigA = new BigInteger(s);
+		bigB = new BigInteger(t);
+		bigC = new BigInteger(u);
+		bigDividend = new BigInteger(v);
+	}
+
+	@Benchmark
+	public DecimalInt add() {
+		return DecimalInt.add(a, b);
+	}
+
+	@Benchmark
+	public BigInteger addBigInteger() {
+		return bigA.add(bigB);
+	}
+
+	@Benchmark
+	public DecimalInt subtract() {
+		return DecimalInt.subtract(a, b);
+	}
+
+	@Benchmark
+	public BigInteger subtractBigInteger() {
+		return bigA.subtract(bigB);
+	}
+
+	@Benchmark
+	public DecimalInt multiply() {
+		return DecimalInt.multiply(a, b);
+	}
+
+	@Benchmark
+	public BigInteger multiplyBigInteger() {
+		return bigA.multiply(bigB);
+	}
+
+	@Benchmark
+	public DecimalInt multiplyAdd() {
+		return DecimalInt.multiplyAdd(a, b, c);
+	}
+
+	@Benchmark
+	public BigInteger multiplyAddBigInteger() {
+		return bigA.multiply(bigB).add(bigC);
+	}
+
+	@Benchmark
+	public DecimalInt[] divide() {
+		return DecimalInt.divide(dividend, a);
+	}
+
+	@Benchmark
+	public BigInteger[] divideBigInteger() {
+		return bigDividend.divideAndRemainder(bigA);
+	}
+
+	@Benchmark
+	public int compare() {
+		return DecimalInt.compare(a, c);
+	}
+
+	@Benchmark
+	public int compareBigInteger() {
+		return bigA.compareTo(bigC);
+	}
+}
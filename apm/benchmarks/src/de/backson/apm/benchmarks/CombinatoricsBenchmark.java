@@ -0,0 +1,64 @@
+package de.backson.apm.benchmarks;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.backson.apm.DecimalInt;
+
+// n! and the central binomial coefficient (2n choose n), n = 250000 gives about 1.2 million and 300000 digits
+// the BigInteger baseline multiplies with a balanced product tree, which is what a careful user of BigInteger does
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CombinatoricsBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "100000", "250000"})
+	int n;
+
+	@Benchmark
+	public DecimalInt factorial() {
+		return DecimalInt.factorial(n);
+	}
+
+	@Benchmark
+	public BigInteger factorialBigInteger() {
+		return product(1, n);
+	}
+
+	@Benchmark
+	public DecimalInt combinations() {
+		return DecimalInt.combinations(2 * n, n);
+	}
+
+	@Benchmark
+	public BigInteger combinationsBigInteger() {
+		return product(n + 1, 2 * n).divide(product(1, n));
+	}
+
+	// the product of all integers in [from, to]
+	private static BigInteger product(int from, int to) {
+		if (to - from < 16) {
+			BigInteger result = BigInteger.ONE;
+			for (int i = from; i <= to; ++i) {
+				result = result.multiply(BigInteger.valueOf(i));
+			}
+			return result;
+		}
+		int middle = (from + to) >>> 1;
+		return product(from, middle).multiply(product(middle + 1, to));
+	}
+}
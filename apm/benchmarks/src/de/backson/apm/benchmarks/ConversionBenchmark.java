@@ -0,0 +1,92 @@
+package de.backson.apm.benchmarks;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.backson.apm.DecimalInt;
+
+// formatting and parsing of numbers with the given number of decimal digits, hexadecimal and binary text
+// is the same value in the other base, BigInteger parses the digits without the prefix
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "100000", "1000000"})
+	int digits;
+
+	private DecimalInt value;
+	private BigInteger bigValue;
+	private String decimal;
+	private String hex;
+	private String binary;
+	private String prefixedHex;
+	private String prefixedBinary;
+
+	@Setup
+	public void setup() {
+		decimal = Operands.randomDigits(new Random(digits), digits);
+		value = new DecimalInt(decimal);
+		bigValue = new BigInteger(decimal);
+		hex = bigValue.toString(16);
+		binary = bigValue.toString(2);
+		prefixedHex = "0x" + hex;
+		prefixedBinary = "0b" + binary;
+	}
+
+	@Benchmark
+	public String format() {
+		return value.toString();
+	}
+
+	@Benchmark
+	public String formatBigInteger() {
+		return bigValue.toString();
+	}
+
+	@Benchmark
+	public DecimalInt parseDecimal() {
+		return new DecimalInt(decimal);
+	}
+
+	@Benchmark
+	public BigInteger parseDecimalBigInteger() {
+		return new BigInteger(decimal);
+	}
+
+	@Benchmark
+	public DecimalInt parseHex() {
+		return new DecimalInt(prefixedHex);
+	}
+
+	@Benchmark
+	public BigInteger parseHexBigInteger() {
+		return new BigInteger(hex, 16);
+	}
+
+	@Benchmark
+	public DecimalInt parseBinary() {
+		return new DecimalInt(prefixedBinary);
+	}
+
+	@Benchmark
+	public BigInteger parseBinaryBigInteger() {
+		return new BigInteger(binary, 2);
+	}
+}
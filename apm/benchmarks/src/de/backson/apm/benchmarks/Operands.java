@@ -0,0 +1,20 @@
+package de.backson.apm.benchmarks;
+
+import java.util.Random;
+
+// reproducible random operands for the benchmarks
+final class Operands {
+
+	private Operands() {
+	}
+
+	// a positive number with exactly the given number of decimal digits
+	static String randomDigits(Random random, int digits) {
+		StringBuilder sb = new StringBuilder(digits);
+		sb.append((char)('1' + random.nextInt(9)));
+		for (int i = 1; i < digits; ++i) {
+			sb.append((char)('0' + random.nextInt(10)));
+		}
+		return sb.toString();
+	}
+}
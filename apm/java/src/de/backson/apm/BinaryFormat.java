@@ -0,0 +1,139 @@
+package de.backson.apm;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// the binary encoding of a DecimalInt, version 1:
+//   1 byte     version
+//   1 byte     flags, bit 0 is the sign
+//   varint     number of limbs n, 7 bits per byte with the low bits first and the high bit set on all but the last byte
+//   4n bytes   limbs in base 10^9, least significant first, each one little endian
+// the most significant limb is never zero, so zero is encoded in three bytes
+final class BinaryFormat {
+
+	static final byte VERSION = 1;
+
+	private static final int FLAG_NEGATIVE = 1;
+
+	private BinaryFormat() {
+	}
+
+	// return the number of bytes of the encoded value
+	static int size(DecimalInt value) {
+		int limbs = value.getLimbCount();
+		return headerSize(limbs) + 4 * limbs;
+	}
+
+	// return the number of bytes before the limbs
+	static int headerSize(int limbs) {
+		return 2 + varintSize(limbs);
+	}
+
+	private static int varintSize(int n) {
+		int size = 1;
+		while ((n >>>= 7) != 0) {
+			++size;
+		}
+		return size;
+	}
+
+	// encode the value at the position of the buffer and advance it
+	// nothing is written if the buffer is too small
+	static void write(DecimalInt value, ByteBuffer buffer) {
+		if (buffer.remaining() < size(value))
+			throw new BufferOverflowException();
+		int size = value.getLimbCount();
+		writeHeader(size, value.isNegative(), buffer);
+
+		// the limbs are copied in bulk through a little endian view, zero has no limb array
+		if (size > 0) {
+			ByteOrder order = buffer.order();
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.asIntBuffer().put(value.getLimbData(), 0, size);
+			buffer.order(order);
+			buffer.position(buffer.position() + 4 * size);
+		}
+	}
+
+	// write everything before the limbs and advance the position
+	static void writeHeader(int limbs, boolean negative, ByteBuffer buffer) {
+		buffer.put(VERSION);
+		buffer.put((byte)(negative ? FLAG_NEGATIVE : 0));
+		int n = limbs;
+		while ((n & ~0x7F) != 0) {
+			buffer.put((byte)((n & 0x7F) | 0x80));
+			n >>>= 7;
+		}
+		buffer.put((byte)n);
+	}
+
+	// decode a value at the position of the buffer and advance it past the encoding
+	static DecimalInt read(ByteBuffer buffer) {
+		Header header = readHeader(buffer);
+		int size = header.limbs;
+		int[] data = new int[size];
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.asIntBuffer().get(data);
+		buffer.order(order);
+		buffer.position(buffer.position() + 4 * size);
+
+		checkLimbs(data, size, 0);
+		checkHeader(header, size > 0 ? data[size - 1] : 0);
+		return DecimalInt.fromLimbs(data, size, header.negative);
+	}
+
+	// everything before the limbs
+	static final class Header {
+		final int limbs;
+		final boolean negative;
+
+		Header(int limbs, boolean negative) {
+			this.limbs = limbs;
+			this.negative = negative;
+		}
+	}
+
+	// decode everything before the limbs and advance the position to the first limb,
+	// throws if the buffer has no room for all limbs, in which case the header bytes are consumed nevertheless
+	static Header readHeader(ByteBuffer buffer) {
+		byte version = buffer.get();
+		if (version != VERSION)
+			throw new IllegalArgumentException("Unsupported version " + version + " of the binary format.");
+		int flags = buffer.get();
+		if ((flags & ~FLAG_NEGATIVE) != 0)
+			throw new IllegalArgumentException("Unknown flags " + flags + " in the binary format.");
+
+		int size = 0;
+		for (int shift = 0; ; shift += 7) {
+			int b = buffer.get();
+			// the fifth byte holds the bits 28 to 30, bit 31 would make the count negative
+			if (shift == 28 && (b & 0xF8) != 0)
+				throw new IllegalArgumentException("Limb count is too large.");
+			size |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				break;
+		}
+		if (4L * size > buffer.remaining())
+			throw new IllegalArgumentException("Expected " + size + " limbs, but only " + buffer.remaining() + " bytes remain.");
+		return new Header(size, (flags & FLAG_NEGATIVE) != 0);
+	}
+
+	// check the decoded limbs data[0, n), which start at limb offset of the number,
+	// anything else would break the invariants of DecimalInt
+	static void checkLimbs(int[] data, int n, int offset) {
+		for (int i = 0; i < n; ++i) {
+			if (data[i] < 0 || data[i] >= DecimalInt.BASE)
+				throw new IllegalArgumentException("Limb " + (offset + i) + " is out of range.");
+		}
+	}
+
+	// check the header against the most significant limb
+	static void checkHeader(Header header, int top) {
+		if (header.limbs > 0 && top == 0)
+			throw new IllegalArgumentException("Most significant limb is zero.");
+		if (header.limbs == 0 && header.negative)
+			throw new IllegalArgumentException("Zero must not be negative.");
+	}
+}
@@ -1,12 +1,88 @@
 package de.backson.apm;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+import java.math.RoundingMode;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collector;
 
-public class DecimalInt {
+public class DecimalInt implements Externalizable {
 	
-	private byte[] mData;
-	private int mSize;
-	boolean mNegative;
+	private static final long serialVersionUID = 1L;
+	
+	// every limb holds nine decimal digits, i.e. the data is stored in base 10^9
+	static final int BASE = 1000000000;
+	static final int BASE_DIGITS = 9;
+	
+	// POWERS_OF_TEN[i] = 10^i for all powers that fit into a single limb
+	private static final int[] POWERS_OF_TEN = {
+			1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000,
+	};
+	
+	// operand sizes in limbs from which on multiply switches to Karatsuba, Toom-Cook 3 and the
+	// number theoretic transform, the defaults can be overridden with the system properties
+	// de.backson.apm.karatsubaThreshold, de.backson.apm.toomCookThreshold and de.backson.apm.transformThreshold
+	// the settings are volatile, since the fork/join workers of parallel products read them as well,
+	// a product that sees only one of two new thresholds picks a different algorithm, but never a wrong result
+	private static volatile int sKaratsubaThreshold = Integer.getInteger("de.backson.apm.karatsubaThreshold", 80);
+	private static volatile int sToomCookThreshold = Integer.getInteger("de.backson.apm.toomCookThreshold", 140);
+	private static volatile int sTransformThreshold = Integer.getInteger("de.backson.apm.transformThreshold", 2000);
+	
+	// schoolbook squaring needs only half the limb products, so Karatsuba pays off for squares at about twice the size
+	private static final int KARATSUBA_SQUARE_FACTOR = 2;
+	
+	// operand size in limbs from which on multiplications compute their sub-products in parallel,
+	// which can be overridden with the system property de.backson.apm.parallelThreshold
+	private static volatile int sParallelThreshold = Integer.getInteger("de.backson.apm.parallelThreshold", 4000);
+	// the pool for parallel computations, null stands for the common pool
+	private static volatile ForkJoinPool sForkJoinPool = null;
+	
+	// divisor size in limbs from which on divide uses the recursive algorithm by Burnikel and Ziegler,
+	// provided the dividend is at least the offset longer than the divisor
+	private static final int BURNIKEL_ZIEGLER_THRESHOLD = 40;
+	private static final int BURNIKEL_ZIEGLER_OFFSET = 20;
+	
+	// the largest n for which n! fits into a long
+	private static final int SMALL_FACTORIAL_LIMIT = 20;
+	// the number of factors a product tree multiplies sequentially
+	private static final int PRODUCT_TREE_LEAF_SIZE = 16;
+	
+	// valueOf returns shared instances for all values in [SMALL_CACHE_MIN, SMALL_CACHE_MAX]
+	private static final int SMALL_CACHE_MIN = -128;
+	private static final int SMALL_CACHE_MAX = 1024;
+	private static final DecimalInt[] SMALL_CACHE = new DecimalInt[SMALL_CACHE_MAX - SMALL_CACHE_MIN + 1];
+	// getPowerOfTen and valueOf return shared instances for the powers 10^0 .. 10^(POWER_CACHE_SIZE-1)
+	private static final int POWER_CACHE_SIZE = 64;
+	private static final DecimalInt[] POWER_CACHE = new DecimalInt[POWER_CACHE_SIZE];
+	
+	static {
+		for (int i = 0; i < SMALL_CACHE.length; ++i) {
+			SMALL_CACHE[i] = new DecimalInt(SMALL_CACHE_MIN + i);
+		}
+		for (int exponent = 0; exponent < POWER_CACHE_SIZE; ++exponent) {
+			POWER_CACHE[exponent] = createPowerOfTen(exponent);
+		}
+	}
+	
+	// limbs in base 10^9, least significant limb first
+	private final int[] mData;
+	// number of limbs in use, i.e. the largest index of any nonzero limb plus one
+	private final int mSize;
+	private final boolean mNegative;
 	
 	// initialize to zero
 	public DecimalInt() {
@@ -17,46 +93,40 @@ public class DecimalInt {
 	
 	// initialize to value in decimal string (MSB first)
 	public DecimalInt(String s) {
-		DecimalIntParser parser = new DecimalIntParser(s);
-		
-		// set new size and allocate space
-		int size = parser.getDigits().size();
-		if (size > 0) {
-			if (parser.getBase() == 10) {
-				mSize = size;
-				mData = new byte[size];
-				// copy digits to data array in reverse order
-				int i = mSize - 1;
-				for (Byte b : parser.getDigits()) {
-					mData[i--] = b;
-				}
-			}
-			else {
-				mData = new byte[size*2];
-				for (Byte b : parser.getDigits()) {
-					int carry = b;
-					for (int i = 0; i < mData.length; ++i) {
-						int sum = mData[i] * parser.getBase() + carry;
-						int word = sum % 10;
-						carry = sum / 10;
-						mData[i] = (byte)word;
-						if (word != 0) {
-							mSize = Math.max(mSize, i + 1);
-						}
-					}
-				}
-			}
-			mNegative = parser.getSign() < 0;
-		}
-		else {
-			// zero requires no data array at all
-			mData = null;
-			// zero is not negative, i.e. "-0" equals "+0"
-			mNegative = false;
-		}
+		this((CharSequence)s);
+	}
+	
+	// initialize to value in a sequence of characters, with the same syntax as a string
+	public DecimalInt(CharSequence s) {
+		this(new DecimalIntParser(s).getValue());
+	}
+	
+	// initialize to value in chars[offset, offset+length)
+	public DecimalInt(char[] chars, int offset, int length) {
+		this(new DecimalIntParser(chars, offset, length).getValue());
+	}
+	
+	// initialize to value in ASCII characters ascii[offset, offset+length)
+	public DecimalInt(byte[] ascii, int offset, int length) {
+		this(new DecimalIntParser(ascii, offset, length).getValue());
+	}
+	
+	// take over the limbs of a freshly parsed value
+	private DecimalInt(DecimalInt parsed) {
+		mData = parsed.mData;
+		mSize = parsed.mSize;
+		mNegative = parsed.mNegative;
+	}
+	
+	// take over limbs in base 10^9 without copying, leading zero limbs are ignored
+	private DecimalInt(int[] data, int size, boolean negative) {
+		mData = data;
+		mSize = Limbs.normalize(data, size);
+		mNegative = negative && mSize > 0;
 	}
 	
 	// initialize to value of an integer
+	// valueOf is preferable, since it shares the instances of small values
 	public DecimalInt(long val) {
 		// handle sign
 		if (val < 0) {
@@ -65,44 +135,79 @@ public class DecimalInt {
 		else {
 			mNegative = false;
 		}
-		// 19 digits fit every long there is
-		// this is a bit wasteful, but avoids reallocation
-		mData = new byte[19];
+		// 19 digits fit every long there is, which is at most three limbs
+		int size = 0;
+		for (long rest = val; rest != 0; rest /= BASE) {
+			++size;
+		}
+		mData = size > 0 ? new int[size] : null;
 		// iterate over data
-		int counter = 0;
-		while (val != 0) {
-			byte remainder = (byte)Math.abs(val % 10);
-			val = val / 10;
-			mData[counter++] = remainder;
+		for (int i = 0; i < size; ++i) {
+			mData[i] = (int)Math.abs(val % BASE);
+			val = val / BASE;
 		}
-		mSize = counter;
-		
-		shrink();
+		mSize = size;
 	}
 	
-	// allocate enough memory for at least 'size' digits
-	private void grow(int size) {
-		if (size < 0)
-			throw new IllegalArgumentException("Negative size");
-		
-		if (mData == null) {
-			mData = new byte[size];
+	// return a number equal to val, which is a shared instance for small values and powers of ten
+	public static DecimalInt valueOf(long val) {
+		if (val >= SMALL_CACHE_MIN && val <= SMALL_CACHE_MAX) {
+			return SMALL_CACHE[(int)val - SMALL_CACHE_MIN];
 		}
-		else if (size > mData.length) {
-			mData = Arrays.copyOf(mData, size);
+		if (val > 0 && val % 10 == 0) {
+			long rest = val;
+			int exponent = 0;
+			while (rest % 10 == 0) {
+				rest /= 10;
+				++exponent;
+			}
+			if (rest == 1)
+				return POWER_CACHE[exponent];
 		}
+		return new DecimalInt(val);
+	}
+	
+	// return a new nonnegative number made of the limbs [from, to) of this number
+	DecimalInt getLimbs(int from, int to) {
+		to = Math.min(to, mSize);
+		if (from >= to)
+			return new DecimalInt();
+		return new DecimalInt(Arrays.copyOfRange(mData, from, to), to - from, false);
+	}
+	
+	// return a new number equal to this number multiplied by BASE^limbs
+	private DecimalInt shiftLimbs(int limbs) {
+		if (mSize == 0)
+			return new DecimalInt();
+		int[] data = new int[mSize + limbs];
+		System.arraycopy(mData, 0, data, limbs, mSize);
+		return new DecimalInt(data, mSize + limbs, mNegative);
 	}
 	
-	// shrink the array to the smallest size possible
-	private void shrink() {
-		if (mData != null && mData.length > mSize) {
-			mData = Arrays.copyOf(mData, mSize);
+	// return the number of decimal digits of a positive limb
+	static int digitCount(int word) {
+		int count = 1;
+		while (count < BASE_DIGITS && word >= POWERS_OF_TEN[count]) {
+			++count;
 		}
+		return count;
 	}
 	
-	// return size, i.e. the largest index of any nonzero 
+	// return size, i.e. the number of decimal digits
 	public int getSize() {
-		return mSize;
+		if (mSize == 0)
+			return 0;
+		return (mSize - 1) * BASE_DIGITS + digitCount(mData[mSize - 1]);
+	}
+	
+	// return the decimal digit of the magnitude at the given position, where 0 is the least significant digit
+	public int digitAt(int index) {
+		if (index < 0)
+			throw new IllegalArgumentException("Negative digit index " + index + " is not allowed.");
+		int limb = index / BASE_DIGITS;
+		if (limb >= mSize)
+			return 0;
+		return mData[limb] / POWERS_OF_TEN[index % BASE_DIGITS] % 10;
 	}
 	
 	// return true if negative, false otherwise
@@ -120,32 +225,213 @@ public class DecimalInt {
 			return +1;
 	}
 	
+	// create a number from limbs in base 10^9, the array is taken over without copying
+	static DecimalInt fromLimbs(int[] data, int size, boolean negative) {
+		return new DecimalInt(data, size, negative);
+	}
+	
+	// return a number with the magnitude of value and the given sign, which shares the limbs of value
+	static DecimalInt withSign(DecimalInt value, boolean negative) {
+		if (value.mNegative == (negative && value.mSize > 0))
+			return value;
+		return fromLimbs(value.mData, value.mSize, negative);
+	}
+	
+	// package internal access to the limbs, the array must not be modified
+	int[] getLimbData() {
+		return mData;
+	}
+	
+	// return the number of limbs in use
+	int getLimbCount() {
+		return mSize;
+	}
+	
 	// make a copy
 	public DecimalInt copy() {
-		DecimalInt result = new DecimalInt();
-		result.mSize = mSize;
-		result.mNegative = mNegative;
-		result.mData = Arrays.copyOf(mData, mSize);
-		return result;
+		if (mData == null)
+			return new DecimalInt();
+		return new DecimalInt(Arrays.copyOf(mData, mSize), mSize, mNegative);
 	}
 	
 	@Override
 	public String toString() {
-		StringBuilder sb = new StringBuilder();
+		// Latin-1 bytes become the content of a compact string without conversion
+		byte[] bytes = new byte[getTextLength()];
+		format(bytes);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+	
+	// return the characters of toString
+	public char[] toCharArray() {
+		char[] chars = new char[getTextLength()];
+		if (mSize == 0) {
+			chars[0] = '0';
+			return chars;
+		}
 		
+		// every limb except the most significant one maps to exactly nine characters
+		int pos = chars.length;
+		for (int i = 0; i < mSize - 1; ++i) {
+			pos -= BASE_DIGITS;
+			Limbs.format(mData[i], chars, pos);
+		}
+		pos = Limbs.formatLeading(mData[mSize - 1], chars, pos);
+		if (mNegative) {
+			chars[--pos] = '-';
+		}
+		return chars;
+	}
+	
+	// append the characters of toString without creating a string first
+	public StringBuilder appendTo(StringBuilder sb) {
+		DecimalStreams.append(this, sb);
+		return sb;
+	}
+	
+	// return the exact length of toString
+	private int getTextLength() {
+		if (mSize == 0)
+			return 1;
+		return (mNegative ? 1 : 0) + getSize();
+	}
+	
+	// fill the bytes with the ASCII characters of toString
+	private void format(byte[] bytes) {
 		if (mSize == 0) {
-			sb.append("0");
+			bytes[0] = '0';
+			return;
 		}
-		else {
-			if (mNegative) {
-				sb.append("-");
+		int pos = bytes.length;
+		for (int i = 0; i < mSize - 1; ++i) {
+			pos -= BASE_DIGITS;
+			Limbs.format(mData[i], bytes, pos);
+		}
+		pos = Limbs.formatLeading(mData[mSize - 1], bytes, pos);
+		if (mNegative) {
+			bytes[--pos] = '-';
+		}
+	}
+	
+	// return the number in the given radix from 2 to 36, with lowercase letters like Character.forDigit
+	// there is no prefix, i.e. 255 in radix 16 is "ff"
+	public String toString(int radix) {
+		if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX)
+			throw new IllegalArgumentException("Radix " + radix + " is out of range.");
+		if (radix == 10)
+			return toString();
+		return RadixConversion.toString(this, radix);
+	}
+	
+	// write the same text as toString to a channel, in chunks instead of one string
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		DecimalStreams.write(this, channel);
+	}
+	
+	// append the same text as toString, in chunks instead of one string
+	public void writeTo(Appendable out) throws IOException {
+		DecimalStreams.write(this, out);
+	}
+	
+	// read a number with the syntax of the string constructor from the rest of the channel
+	// surrounding whitespace is ignored, file channels are mapped into memory instead of read
+	public static DecimalInt readFrom(ReadableByteChannel channel) throws IOException {
+		return DecimalStreams.read(channel);
+	}
+	
+	// read a number with the syntax of the string constructor from a memory mapped file
+	public static DecimalInt readFrom(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return DecimalStreams.read(channel);
+		}
+	}
+	
+	// return the number of bytes of the binary encoding
+	public int getSerializedSize() {
+		return BinaryFormat.size(this);
+	}
+	
+	// return the binary encoding, which stores the limbs directly instead of digits
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[getSerializedSize()];
+		writeTo(ByteBuffer.wrap(bytes));
+		return bytes;
+	}
+	
+	// decode a number from the result of toByteArray
+	public static DecimalInt fromByteArray(byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		DecimalInt result = readFrom(buffer);
+		if (buffer.hasRemaining())
+			throw new IllegalArgumentException(buffer.remaining() + " bytes left after the binary encoding.");
+		return result;
+	}
+	
+	// write the binary encoding at the position of the buffer and advance it
+	public void writeTo(ByteBuffer buffer) {
+		BinaryFormat.write(this, buffer);
+	}
+	
+	// read a binary encoding at the position of the buffer and advance it
+	public static DecimalInt readFrom(ByteBuffer buffer) {
+		return BinaryFormat.read(buffer);
+	}
+	
+	// writes the same data as the serialization proxy, which is what ObjectOutputStream writes in place of a number
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		new SerializationProxy(toByteArray()).writeExternal(out);
+	}
+	
+	// numbers are immutable, so this always fails, deserialization creates a new number from its proxy instead
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		throw new InvalidObjectException("DecimalInt is immutable and deserialized through its proxy.");
+	}
+	
+	private Object writeReplace() {
+		return new SerializationProxy(toByteArray());
+	}
+	
+	// the serialized form of a number, i.e. the length and the bytes of its binary encoding,
+	// readResolve decodes it into a new number, so that deserialization never fills in an existing one
+	private static final class SerializationProxy implements Externalizable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private byte[] mBytes;
+		
+		// only for deserialization
+		public SerializationProxy() {
+		}
+		
+		SerializationProxy(byte[] bytes) {
+			mBytes = bytes;
+		}
+		
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeInt(mBytes.length);
+			out.write(mBytes);
+		}
+		
+		@Override
+		public void readExternal(ObjectInput in) throws IOException {
+			int length = in.readInt();
+			if (length < 0)
+				throw new InvalidObjectException("Negative length " + length + " of the binary encoding.");
+			mBytes = new byte[length];
+			in.readFully(mBytes);
+		}
+		
+		private Object readResolve() throws ObjectStreamException {
+			try {
+				return fromByteArray(mBytes);
 			}
-			for (int i = mSize - 1; i >= 0; --i) {
-				sb.append("" + mData[i]);
+			catch (IllegalArgumentException | BufferUnderflowException e) {
+				throw new InvalidObjectException(e.getMessage());
 			}
 		}
-		
-		return sb.toString();
 	}
 	
     @Override
@@ -168,16 +454,155 @@ public class DecimalInt {
         return DecimalInt.eq(c, this);
     } 
 	
-	// creates a DecimalInt equal to 10^exponent
+	@Override
+	public int hashCode() {
+		int hash = mNegative ? -1 : 1;
+		for (int i = 0; i < mSize; ++i) {
+			hash = 31 * hash + mData[i];
+		}
+		return hash;
+	}
+	
+	// creates a DecimalInt equal to 10^exponent, small powers are shared instances
 	public static DecimalInt getPowerOfTen(int exponent) {
 		if (exponent < 0)
 			throw new IllegalArgumentException("Negative exponent " + exponent + " is not allowed.");
+		if (exponent < POWER_CACHE_SIZE)
+			return POWER_CACHE[exponent];
+		return createPowerOfTen(exponent);
+	}
+	
+	private static DecimalInt createPowerOfTen(int exponent) {
+		int limb = exponent / BASE_DIGITS;
+		int[] data = new int[limb + 1];
+		data[limb] = POWERS_OF_TEN[exponent % BASE_DIGITS];
+		return new DecimalInt(data, limb + 1, false);
+	}
+	
+	// computes value * 10^digits by moving the digits, which is a copy when digits is a multiple of BASE_DIGITS
+	public static DecimalInt shiftLeftDecimal(DecimalInt value, int digits) {
+		if (digits < 0)
+			throw new IllegalArgumentException("Negative shift " + digits + " is not allowed.");
+		if (digits == 0 || value.mSize == 0)
+			return value;
 		
-		DecimalInt result = new DecimalInt();
-		result.grow(exponent + 1);
-		result.mData[exponent] = (byte)1;
-		result.mSize = exponent + 1;
-		return result;
+		int limbs = digits / BASE_DIGITS;
+		int shift = digits % BASE_DIGITS;
+		int[] data = new int[value.mSize + limbs + 1];
+		if (shift == 0) {
+			System.arraycopy(value.mData, 0, data, limbs, value.mSize);
+		}
+		else {
+			// the upper shift digits of every limb move into the next limb
+			int low = POWERS_OF_TEN[BASE_DIGITS - shift];
+			int scale = POWERS_OF_TEN[shift];
+			int carry = 0;
+			for (int i = 0; i < value.mSize; ++i) {
+				int word = value.mData[i];
+				data[i + limbs] = word % low * scale + carry;
+				carry = word / low;
+			}
+			data[value.mSize + limbs] = carry;
+		}
+		return fromLimbs(data, data.length, value.mNegative);
+	}
+	
+	// computes value / 10^digits truncated towards zero by moving the digits, returns an array with the quotient
+	// as the first element and the remainder, which has the sign of value, as the second
+	public static DecimalInt[] shiftRightDecimal(DecimalInt value, int digits) {
+		if (digits < 0)
+			throw new IllegalArgumentException("Negative shift " + digits + " is not allowed.");
+		int limbs = digits / BASE_DIGITS;
+		if (digits == 0 || limbs >= value.mSize)
+			return digits == 0 ? new DecimalInt[]{value, valueOf(0)} : new DecimalInt[]{valueOf(0), value};
+		
+		int shift = digits % BASE_DIGITS;
+		int size = value.mSize - limbs;
+		int[] quotient = new int[size];
+		int[] remainder = new int[limbs + 1];
+		System.arraycopy(value.mData, 0, remainder, 0, limbs);
+		if (shift == 0) {
+			System.arraycopy(value.mData, limbs, quotient, 0, size);
+		}
+		else {
+			// the lower shift digits of every limb move into the previous limb
+			int divisor = POWERS_OF_TEN[shift];
+			int scale = POWERS_OF_TEN[BASE_DIGITS - shift];
+			remainder[limbs] = value.mData[limbs] % divisor;
+			for (int i = 0; i < size - 1; ++i) {
+				quotient[i] = value.mData[limbs + i] / divisor + value.mData[limbs + i + 1] % divisor * scale;
+			}
+			quotient[size - 1] = value.mData[value.mSize - 1] / divisor;
+		}
+		return new DecimalInt[]{fromLimbs(quotient, size, value.mNegative), fromLimbs(remainder, limbs + 1, value.mNegative)};
+	}
+	
+	// keeps the given number of leading digits and sets all others to zero, i.e. rounds towards zero
+	public static DecimalInt truncateToDigits(DecimalInt value, int digits) {
+		return roundToDigits(value, digits, RoundingMode.DOWN);
+	}
+	
+	// rounds to the given number of leading digits and sets all others to zero, like BigDecimal.round
+	// a carry can add a digit, e.g. 999 rounds up to 1000 with two digits
+	public static DecimalInt roundToDigits(DecimalInt value, int digits, RoundingMode mode) {
+		if (digits < 1)
+			throw new IllegalArgumentException("Precision " + digits + " is not allowed.");
+		int drop = value.getSize() - digits;
+		if (drop <= 0)
+			return value;
+		
+		// the first dropped digit and whether any digit below it is nonzero decide the rounding
+		int first = value.digitAt(drop - 1);
+		boolean sticky = value.mData[(drop - 1) / BASE_DIGITS] % POWERS_OF_TEN[(drop - 1) % BASE_DIGITS] != 0;
+		for (int i = 0; i < (drop - 1) / BASE_DIGITS && !sticky; ++i) {
+			sticky = value.mData[i] != 0;
+		}
+		boolean exact = first == 0 && !sticky;
+		boolean increment;
+		switch (mode) {
+		case UP:
+			increment = !exact;
+			break;
+		case DOWN:
+			increment = false;
+			break;
+		case CEILING:
+			increment = !exact && !value.mNegative;
+			break;
+		case FLOOR:
+			increment = !exact && value.mNegative;
+			break;
+		case HALF_UP:
+			increment = first >= 5;
+			break;
+		case HALF_DOWN:
+			increment = first > 5 || first == 5 && sticky;
+			break;
+		case HALF_EVEN:
+			increment = first > 5 || first == 5 && (sticky || value.digitAt(drop) % 2 != 0);
+			break;
+		case UNNECESSARY:
+			if (!exact)
+				throw new ArithmeticException("Rounding necessary");
+			return value;
+		default:
+			throw new IllegalArgumentException("Unknown rounding mode " + mode);
+		}
+		
+		// copy the kept limbs, the lower limbs stay zero
+		int limbs = drop / BASE_DIGITS;
+		int unit = POWERS_OF_TEN[drop % BASE_DIGITS];
+		int[] data = new int[value.mSize + 1];
+		System.arraycopy(value.mData, limbs, data, limbs, value.mSize - limbs);
+		data[limbs] -= data[limbs] % unit;
+		if (increment) {
+			data[limbs] += unit;
+			for (int i = limbs; data[i] >= BASE; ++i) {
+				data[i] -= BASE;
+				++data[i + 1];
+			}
+		}
+		return fromLimbs(data, data.length, value.mNegative);
 	}
 	
 	public static boolean lte(DecimalInt lhs, DecimalInt rhs) {
@@ -226,78 +651,17 @@ public class DecimalInt {
 	}
 	
 	public static int compareMagnitudes(DecimalInt lhs, DecimalInt rhs) {
-		int lhsSize = lhs.getSize();
-		int rhsSize = rhs.getSize();
-		// check if either number has more words
-		if (lhsSize < rhsSize)
-			return -1;
-		if (lhsSize > rhsSize)
-			return 1;
-
-		// at this point we know that lhs->size == rhs->size
-		//assert(lhs_size == rhs_size);
-		int size = lhsSize;
-
-		// iterate through the words, from MSD to LSD
-		for (int i = size - 1; i >= 0; --i) {
-			byte lhsWord = lhs.mData[i];
-			byte rhsWord = rhs.mData[i];
-			if (lhsWord < rhsWord)
-				return -1;
-			if (lhsWord > rhsWord)
-				return 1;
-		}
-
-		// if we reach this point, then both values are equal
-		return 0;
-	}
-	
-	// helper function that only subtracts the magnitudes and ignores signs
-	private static void subtractWords(DecimalInt larger, DecimalInt smaller, DecimalInt dst) {
-		// loop over words
-		int carry = 0;
-		int word;
-		for (int i = 0; i < dst.mData.length; ++i) {
-			int sum = carry;
-			if (i < larger.mSize)
-				sum += (int)larger.mData[i];
-			if (i < smaller.mSize)
-				sum -= (int)smaller.mData[i];
-			
-			if (sum > 0) {
-				word = sum % 10;
-				carry = sum / 10;
-			}
-			else {
-				sum += 10;
-				word = sum % 10;
-				carry = sum / 10 - 1;
-			}
-			dst.mData[i] = (byte)word;
-			if (word != 0) {
-				dst.mSize = i + 1;
-			}
-		}
+		return Limbs.compare(lhs.mData, lhs.mSize, rhs.mData, rhs.mSize);
+	}
+	
+	// helper function that only subtracts the magnitudes and ignores signs, returns the size of the difference
+	private static int subtractWords(DecimalInt larger, DecimalInt smaller, int[] dst) {
+		return Limbs.subtract(larger.mData, larger.mSize, smaller.mData, smaller.mSize, dst);
 	}
 
-	// helper function that only adds the magnitudes and ignores signs
-	private static void addWords(DecimalInt larger, DecimalInt smaller, DecimalInt dst) {
-		// loop over words
-		int carry = 0;
-		for (int i = 0; i < dst.mData.length; ++i) {
-			int sum = carry;
-			if (i < larger.mSize)
-				sum += (int)larger.mData[i];
-			if (i < smaller.mSize)
-				sum += (int)smaller.mData[i];
-			
-			int word = sum % 10;
-			carry = sum / 10;
-			dst.mData[i] = (byte)word;
-			if (word != 0) {
-				dst.mSize = i + 1;
-			}
-		}
+	// helper function that only adds the magnitudes and ignores signs, returns the size of the sum
+	private static int addWords(DecimalInt larger, DecimalInt smaller, int[] dst) {
+		return Limbs.add(larger.mData, larger.mSize, smaller.mData, smaller.mSize, dst);
 	}
 
 	// helper function for addition and subtraction
@@ -307,63 +671,58 @@ public class DecimalInt {
 		int lhsSign = lhs.getSign();
 		int rhsSign = sign * rhs.getSign();
 
-		// check if one of the two values is zero
+		// check if one of the two values is zero, numbers are immutable so the other one can be returned as is
 		if (rhsSign == 0) {
-			DecimalInt result = lhs.copy();
-			return result;
+			return lhs;
 		}
 		if (lhsSign == 0) {
-			DecimalInt result = rhs.copy();
-			if (sign < 0 && rhs.getSize() > 0) {
-				result.mNegative = !result.mNegative;
-			}
-			return result;
+			return withSign(rhs, rhsSign < 0);
 		}
 
-		int capacity = Math.max(lhs.getSize(), rhs.getSize()) + 1;
-		DecimalInt result = new DecimalInt();
-		result.grow(capacity);
+		int capacity = Math.max(lhs.mSize, rhs.mSize) + 1;
+		int[] data = new int[capacity];
+		int size = 0;
+		boolean negative = false;
 		int cmp = compareMagnitudes(lhs, rhs);
 		
 		// check if the sign is equal
 		if (lhsSign == rhsSign) {
 			// add the words (ignore sign)
 			if (cmp > 0) {
-				addWords(lhs, rhs, result);
+				size = addWords(lhs, rhs, data);
 			}
 			else {
-				addWords(rhs, lhs, result);
+				size = addWords(rhs, lhs, data);
 			}
 			// set the sign of the destination
 			if (lhsSign < 0 && rhsSign < 0) {
-				result.mNegative = true;
+				negative = true;
 			}
 		}
 		else {
 			// subtract the smaller magnitude from the larger one
 			if (cmp > 0) {
 				// subtract words (ignoring sign)
-				subtractWords(lhs, rhs, result);
+				size = subtractWords(lhs, rhs, data);
 				// fix the sign
 				if (lhsSign < 0) {
-					result.mNegative = true;
+					negative = true;
 				}
 			}
 			else if (cmp < 0) {
 				// subtract words (ignoring sign)
-				subtractWords(rhs, lhs, result);
+				size = subtractWords(rhs, lhs, data);
 				// fix the sign
 				if (rhsSign < 0) {
-					result.mNegative = true;
+					negative = true;
 				}
 			}
 			else {
 				// we take this branch, if the signs are different, but the magnitudes are equal
 				// therefore the result must be zero, which it already is
-				//result.clear();
 			}
 		}
-		return result;
+		return new DecimalInt(data, size, negative);
 	}
 
 	// add two numbers
@@ -376,34 +735,357 @@ public class DecimalInt {
 		return addHelper(lhs, rhs, -1);
 	}
 	
+	// add a long to a number
+	public static DecimalInt add(DecimalInt lhs, long rhs) {
+		return addLongHelper(lhs, rhs, 1);
+	}
+	
+	// subtract a long from a number
+	public static DecimalInt subtract(DecimalInt lhs, long rhs) {
+		return addLongHelper(lhs, rhs, -1);
+	}
+	
+	// helper function for adding and subtracting a long, whose at most three limbs are added to or subtracted
+	// from a copy of the limbs of lhs in a single pass without any temporary number
+	// sign argument should be 1 for addition and -1 for subtraction
+	private static DecimalInt addLongHelper(DecimalInt lhs, long rhs, int sign) {
+		if (rhs == 0) {
+			return lhs;
+		}
+		boolean rhsNegative = (rhs < 0) ^ (sign < 0);
+		int size = Math.max(lhs.mSize, 3) + 1;
+		int[] data = new int[size];
+		if (lhs.mSize > 0) {
+			System.arraycopy(lhs.mData, 0, data, 0, lhs.mSize);
+		}
+		
+		// the limbs of rhs are the magnitudes of its remainders, which also works for Long.MIN_VALUE
+		if (lhs.mSize == 0 || lhs.mNegative == rhsNegative) {
+			// add the magnitudes, the result has the sign of both operands
+			long carry = 0;
+			for (int i = 0; rhs != 0 || carry != 0; ++i) {
+				long sum = data[i] + Math.abs(rhs % BASE) + carry;
+				carry = sum >= BASE ? 1 : 0;
+				data[i] = (int)(sum - carry * BASE);
+				rhs /= BASE;
+			}
+			return fromLimbs(data, size, rhsNegative);
+		}
+		
+		// subtract the magnitude of rhs from that of lhs
+		long borrow = 0;
+		for (int i = 0; i < size && (rhs != 0 || borrow != 0); ++i) {
+			long difference = data[i] - Math.abs(rhs % BASE) - borrow;
+			borrow = difference < 0 ? 1 : 0;
+			data[i] = (int)(difference + borrow * BASE);
+			rhs /= BASE;
+		}
+		if (borrow == 0) {
+			return fromLimbs(data, size, lhs.mNegative);
+		}
+		// the magnitude of rhs was larger, so the limbs hold BASE^size - (|rhs| - |lhs|), whose complement
+		// is the magnitude of the result with the sign of rhs
+		int i = 0;
+		while (data[i] == 0) {
+			++i;
+		}
+		data[i] = BASE - data[i];
+		for (++i; i < size; ++i) {
+			data[i] = BASE - 1 - data[i];
+		}
+		return fromLimbs(data, size, rhsNegative);
+	}
+	
+	// set the operand sizes in limbs from which on multiply uses Karatsuba and Toom-Cook 3
+	public static void setMultiplyThresholds(int karatsuba, int toomCook) {
+		if (karatsuba < 2)
+			throw new IllegalArgumentException("Karatsuba threshold " + karatsuba + " is too small.");
+		if (toomCook < karatsuba)
+			throw new IllegalArgumentException("Toom-Cook threshold " + toomCook + " is smaller than Karatsuba threshold " + karatsuba + ".");
+		sKaratsubaThreshold = karatsuba;
+		sToomCookThreshold = toomCook;
+	}
+	
+	public static int getKaratsubaThreshold() {
+		return sKaratsubaThreshold;
+	}
+	
+	public static int getToomCookThreshold() {
+		return sToomCookThreshold;
+	}
+	
+	// set the operand size in limbs from which on multiply uses the number theoretic transform
+	public static void setTransformThreshold(int transform) {
+		if (transform < 1)
+			throw new IllegalArgumentException("Transform threshold " + transform + " is too small.");
+		sTransformThreshold = transform;
+	}
+	
+	public static int getTransformThreshold() {
+		return sTransformThreshold;
+	}
+	
+	// set the operand size in limbs from which on multiplications compute their sub-products in parallel
+	public static void setParallelThreshold(int parallel) {
+		if (parallel < 1)
+			throw new IllegalArgumentException("Parallel threshold " + parallel + " is too small.");
+		sParallelThreshold = parallel;
+	}
+	
+	public static int getParallelThreshold() {
+		return sParallelThreshold;
+	}
+	
+	// set the pool for parallel computations, null selects the common pool
+	public static void setForkJoinPool(ForkJoinPool pool) {
+		sForkJoinPool = pool;
+	}
+	
+	public static ForkJoinPool getForkJoinPool() {
+		ForkJoinPool pool = sForkJoinPool;
+		return pool != null ? pool : ForkJoinPool.commonPool();
+	}
+	
+	// return true if the product of two numbers is large enough to compute its parts in parallel
+	private static boolean isParallel(DecimalInt lhs, DecimalInt rhs) {
+		return Math.min(lhs.mSize, rhs.mSize) >= sParallelThreshold;
+	}
+	
+	// run the tasks in parallel in the fork/join pool and return when all of them are done
+	static void invokeAll(Runnable... tasks) {
+		ForkJoinTask<?>[] forks = new ForkJoinTask<?>[tasks.length];
+		for (int i = 0; i < tasks.length; ++i) {
+			forks[i] = ForkJoinTask.adapt(tasks[i]);
+		}
+		// tasks can only be forked from inside the pool, so enter it first if necessary
+		ForkJoinPool pool = getForkJoinPool();
+		if (ForkJoinTask.getPool() == pool) {
+			ForkJoinTask.invokeAll(forks);
+		}
+		else {
+			pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(forks)));
+		}
+	}
+	
+	// multiply the pairs lhs[i]*rhs[i], in parallel if requested
+	private static DecimalInt[] multiplyAll(DecimalInt[] lhs, DecimalInt[] rhs, boolean parallel) {
+		DecimalInt[] products = new DecimalInt[lhs.length];
+		if (parallel) {
+			Runnable[] tasks = new Runnable[lhs.length];
+			for (int i = 0; i < lhs.length; ++i) {
+				int index = i;
+				tasks[i] = () -> products[index] = multiply(lhs[index], rhs[index]);
+			}
+			invokeAll(tasks);
+		}
+		else {
+			for (int i = 0; i < lhs.length; ++i) {
+				products[i] = multiply(lhs[i], rhs[i]);
+			}
+		}
+		return products;
+	}
+	
 	// multiply two numbers
+	// if both operands are the same instance, every tier takes its squaring path
 	public static DecimalInt multiply(DecimalInt lhs, DecimalInt rhs) {
-		int capacity = lhs.getSize() + rhs.getSize();
-		DecimalInt result = new DecimalInt();
-		result.grow(capacity);
-
-		for (int i = 0; i < lhs.getSize(); ++i) {
-			for (int j = 0; j < rhs.getSize(); ++j) {
-				int carry = lhs.mData[i] * rhs.mData[j];
-				for (int k = i + j; k < result.mData.length; ++k) {
-					if (carry == 0) {
-						break;
-					}
-					int sum = (int)result.mData[k] + carry;
-					byte word = (byte)(sum % 10);
-					carry = sum / 10;
-					result.mData[k] = word;
-					if (word > 0) {
-						result.mSize = Math.max(result.mSize, k + 1);
-					}
-				}
-			}
+		DecimalInt result;
+		// read every threshold once
+		int karatsuba = sKaratsubaThreshold;
+		int transform = sTransformThreshold;
+		int toomCook = sToomCookThreshold;
+		if (lhs == rhs)
+			karatsuba *= KARATSUBA_SQUARE_FACTOR;
+		if (lhs.mSize < karatsuba || rhs.mSize < karatsuba) {
+			result = lhs == rhs ? squareSchoolbook(lhs) : multiplySchoolbook(lhs, rhs);
+		}
+		else if (lhs.mSize >= transform && rhs.mSize >= transform
+				&& NumberTheoreticTransform.supports(lhs.mSize + rhs.mSize)) {
+			result = multiplyTransform(lhs, rhs);
+		}
+		else if (lhs.mSize < toomCook && rhs.mSize < toomCook) {
+			result = multiplyKaratsuba(lhs, rhs);
+		}
+		else {
+			result = multiplyToomCook3(lhs, rhs);
 		}
 
 		// set result sign
-		result.mNegative = (lhs.mNegative ^ rhs.mNegative);
+		return withSign(result, lhs.mNegative ^ rhs.mNegative);
+	}
+	
+	// square a number, which is cheaper than a general multiplication on every tier:
+	// schoolbook computes each cross product once, Karatsuba and Toom-Cook evaluate only one operand
+	// and recurse into squares, and the transform of the operand is only computed once
+	public static DecimalInt square(DecimalInt value) {
+		return multiply(value, value);
+	}
+	
+	// multiply a number by a long
+	public static DecimalInt multiply(DecimalInt lhs, long rhs) {
+		// factors that fit into an int are handled in a single pass without any temporary number
+		if (rhs >= -Integer.MAX_VALUE && rhs <= Integer.MAX_VALUE) {
+			return withSign(multiplyByLimb(lhs, (int)Math.abs(rhs)), lhs.mNegative ^ (rhs < 0));
+		}
+		return multiply(lhs, valueOf(rhs));
+	}
+	
+	// computes a*b + c, a product of schoolbook size is accumulated together with c in one buffer of wide limbs,
+	// whose carries are propagated only once instead of once per row
+	public static DecimalInt multiplyAdd(DecimalInt a, DecimalInt b, DecimalInt c) {
+		return multiplyAdd(a, b, c, false);
+	}
+	
+	// computes a*b - c like multiplyAdd
+	public static DecimalInt multiplySubtract(DecimalInt a, DecimalInt b, DecimalInt c) {
+		return multiplyAdd(a, b, c, true);
+	}
+	
+	private static DecimalInt multiplyAdd(DecimalInt a, DecimalInt b, DecimalInt c, boolean subtract) {
+		if (!isSchoolbookProduct(a, b))
+			return subtract ? subtract(multiply(a, b), c) : add(multiply(a, b), c);
 		
-		return result;
+		LimbAccumulator accumulator = new LimbAccumulator(Math.max(a.mSize + b.mSize, c.mSize) + 1);
+		accumulator.addProduct(a, b, a.mNegative ^ b.mNegative);
+		accumulator.add(c, c.mNegative ^ subtract);
+		return accumulator.toDecimalInt();
+	}
+	
+	// computes the sum of xs[i]*ys[i], all products of schoolbook size are accumulated in one buffer
+	// of wide limbs, larger ones are multiplied with the fast algorithms and then added to that buffer
+	public static DecimalInt dot(DecimalInt[] xs, DecimalInt[] ys) {
+		if (xs.length != ys.length)
+			throw new IllegalArgumentException("Vectors of length " + xs.length + " and " + ys.length + " differ in length.");
+		
+		int capacity = 0;
+		for (int i = 0; i < xs.length; ++i) {
+			capacity = Math.max(capacity, xs[i].mSize + ys[i].mSize);
+		}
+		LimbAccumulator accumulator = new LimbAccumulator(capacity + 1);
+		for (int i = 0; i < xs.length; ++i) {
+			boolean negative = xs[i].mNegative ^ ys[i].mNegative;
+			if (isSchoolbookProduct(xs[i], ys[i])) {
+				accumulator.addProduct(xs[i], ys[i], negative);
+			}
+			else {
+				accumulator.add(multiply(xs[i], ys[i]), negative);
+			}
+		}
+		return accumulator.toDecimalInt();
+	}
+	
+	// a collector for the sum of a stream, parallel streams sum into one accumulator per thread and combine them
+	public static Collector<DecimalInt, ?, DecimalInt> summing() {
+		return Collector.of(DecimalIntAccumulator::new, DecimalIntAccumulator::accept, (lhs, rhs) -> {
+			lhs.combine(rhs);
+			return lhs;
+		}, DecimalIntAccumulator::get, Collector.Characteristics.UNORDERED);
+	}
+	
+	// true if a general product of these operands is below the Karatsuba threshold
+	private static boolean isSchoolbookProduct(DecimalInt a, DecimalInt b) {
+		int karatsuba = sKaratsubaThreshold;
+		return a.mSize < karatsuba || b.mSize < karatsuba;
+	}
+	
+	// multiply the magnitudes of two numbers limb by limb
+	private static DecimalInt multiplySchoolbook(DecimalInt lhs, DecimalInt rhs) {
+		int[] data = new int[lhs.mSize + rhs.mSize];
+		int size = Limbs.multiply(lhs.mData, lhs.mSize, rhs.mData, rhs.mSize, data);
+		return new DecimalInt(data, size, false);
+	}
+	
+	// square the magnitude of a number, every cross product a[i]*a[j] with i < j is computed once and doubled
+	private static DecimalInt squareSchoolbook(DecimalInt value) {
+		int[] data = new int[2 * value.mSize];
+		int size = Limbs.square(value.mData, value.mSize, data);
+		return new DecimalInt(data, size, false);
+	}
+	
+	// multiply the magnitudes of two numbers with three instead of four half-sized products
+	private static DecimalInt multiplyKaratsuba(DecimalInt lhs, DecimalInt rhs) {
+		// split both numbers at half the size of the larger one
+		int half = (Math.max(lhs.mSize, rhs.mSize) + 1) / 2;
+		DecimalInt lhsLow = lhs.getLimbs(0, half);
+		DecimalInt lhsHigh = lhs.getLimbs(half, lhs.mSize);
+		DecimalInt[] lhsParts = {lhsHigh, lhsLow, add(lhsHigh, lhsLow)};
+		
+		// a square only splits one operand, then all three products are squares as well
+		DecimalInt[] rhsParts = lhsParts;
+		if (lhs != rhs) {
+			DecimalInt rhsLow = rhs.getLimbs(0, half);
+			DecimalInt rhsHigh = rhs.getLimbs(half, rhs.mSize);
+			rhsParts = new DecimalInt[]{rhsHigh, rhsLow, add(rhsHigh, rhsLow)};
+		}
+		
+		// (lh + ll)*(rh + rl) - lh*rh - ll*rl = lh*rl + ll*rh
+		DecimalInt[] products = multiplyAll(lhsParts, rhsParts, isParallel(lhs, rhs));
+		DecimalInt high = products[0];
+		DecimalInt low = products[1];
+		DecimalInt middle = subtract(subtract(products[2], high), low);
+		
+		return add(add(high.shiftLimbs(2 * half), middle.shiftLimbs(half)), low);
+	}
+	
+	// multiply the magnitudes of two numbers with five instead of nine third-sized products
+	// this uses the evaluation points 0, 1, -1, 2 and infinity and the interpolation sequence by Bodrato
+	private static DecimalInt multiplyToomCook3(DecimalInt lhs, DecimalInt rhs) {
+		// split both numbers into three parts at a third of the size of the larger one
+		int third = (Math.max(lhs.mSize, rhs.mSize) + 2) / 3;
+		DecimalInt[] lhsPoints = evaluateToomCook3(lhs, third);
+		// a square only evaluates one operand, then all five products are squares as well
+		DecimalInt[] rhsPoints = lhs == rhs ? lhsPoints : evaluateToomCook3(rhs, third);
+		
+		// the five products are independent of each other
+		DecimalInt[] products = multiplyAll(lhsPoints, rhsPoints, isParallel(lhs, rhs));
+		DecimalInt v0 = products[0];
+		DecimalInt vm1 = products[1];
+		DecimalInt v1 = products[2];
+		DecimalInt v2 = products[3];
+		DecimalInt vinf = products[4];
+		
+		// interpolate the coefficients, all divisions are exact
+		DecimalInt t2 = divideExactly(subtract(v2, vm1), 3);
+		DecimalInt tm1 = divideExactly(subtract(v1, vm1), 2);
+		DecimalInt t1 = subtract(v1, v0);
+		t2 = divideExactly(subtract(t2, t1), 2);
+		t1 = subtract(subtract(t1, tm1), vinf);
+		t2 = subtract(t2, add(vinf, vinf));
+		tm1 = subtract(tm1, t2);
+		
+		// recompose the result
+		DecimalInt result = add(vinf.shiftLimbs(third), t2);
+		result = add(result.shiftLimbs(third), t1);
+		result = add(result.shiftLimbs(third), tm1);
+		return add(result.shiftLimbs(third), v0);
+	}
+	
+	// split the magnitude into three parts of the given size and evaluate the polynomial with these
+	// coefficients at the points 0, -1, 1, 2 and infinity
+	private static DecimalInt[] evaluateToomCook3(DecimalInt value, int third) {
+		DecimalInt a0 = value.getLimbs(0, third);
+		DecimalInt a1 = value.getLimbs(third, 2 * third);
+		DecimalInt a2 = value.getLimbs(2 * third, value.mSize);
+		
+		DecimalInt d = add(a2, a0);
+		DecimalInt am1 = subtract(d, a1);
+		DecimalInt a1p = add(d, a1);
+		d = add(a1p, a2);
+		DecimalInt a2p = subtract(add(d, d), a0);
+		return new DecimalInt[]{a0, am1, a1p, a2p, a2};
+	}
+	
+	// multiply the magnitudes of two numbers with a number theoretic transform in O(n log n)
+	private static DecimalInt multiplyTransform(DecimalInt lhs, DecimalInt rhs) {
+		int[] data = NumberTheoreticTransform.multiply(lhs.mData, lhs.mSize, rhs.mData, rhs.mSize, isParallel(lhs, rhs));
+		return new DecimalInt(data, data.length, false);
+	}
+	
+	// divide a number by a small divisor that is known to divide it without remainder
+	private static DecimalInt divideExactly(DecimalInt lhs, int divisor) {
+		int[] data = new int[lhs.mSize];
+		Limbs.divideBySmall(lhs.mData, lhs.mSize, divisor, data);
+		return new DecimalInt(data, lhs.mSize, lhs.mNegative);
 	}
 	
 	// divide two numbers
@@ -415,92 +1097,539 @@ public class DecimalInt {
 		
 		// handle result 0 separately
 		if (DecimalInt.compareMagnitudes(lhs, rhs) < 0) {
-			return new DecimalInt[]{new DecimalInt(), lhs};
+			return new DecimalInt[]{valueOf(0), lhs};
 		}
 		
-		// initial guess
-		// we use an upper estimate of the number of digits of the result and then work downwards
-		DecimalInt result = new DecimalInt();
-		int maxDigit = lhs.mSize - rhs.mSize + 1;
-		result.grow(maxDigit);
-		int digit = maxDigit - 1;
-		result.mData[digit] = (byte)9;
-		result.mSize = digit + 1;
-
-		// we can set the sign without looking at the digits, so do that now
-		result.mNegative = lhs.mNegative ^ rhs.mNegative;
-		
-		// check contains lhs/rhs*rhs, which we compare against lhs again
-		// the difference is the remainder of the division
-		DecimalInt check = DecimalInt.multiply(rhs, result);
-		DecimalInt remainder = DecimalInt.subtract(lhs, check);
-		
-		// we iterate until the check is equal to lhs
-		int cmp;
-		while ((cmp = DecimalInt.compareMagnitudes(check, lhs)) != 0) {
-			// check if we are too large
-			if (cmp > 0) {
-				// if we are, reduce the current digit by one
-				result.mData[digit]--;
-				// check if that made the digit zero
-				if (result.mData[digit] == 0) {
-					// if that was the last digit, we are done
-					if (digit == 0)
-						break;
-					// other wise, go to the next lowest digit and continue there
-					else {
-						// if the current digit is also the most significant digit, reduce the size of the data
-						if (result.mSize == digit + 1)
-							--result.mSize;
-						result.mData[--digit] = (byte)9;
-					}
-				}
+		DecimalInt[] result;
+		if (rhs.mSize == 1) {
+			result = divideByLimb(lhs, rhs.mData[0]);
+		}
+		else if (rhs.mSize < BURNIKEL_ZIEGLER_THRESHOLD || lhs.mSize - rhs.mSize < BURNIKEL_ZIEGLER_OFFSET) {
+			result = divideKnuth(lhs, rhs);
+		}
+		else {
+			result = divideBurnikelZiegler(lhs, rhs);
+		}
+		
+		// the quotient is negative if the signs differ, the remainder has the sign of lhs
+		result[0] = withSign(result[0], lhs.mNegative ^ rhs.mNegative);
+		result[1] = withSign(result[1], lhs.mNegative);
+		return result;
+	}
+	
+	// divide a number by a long, the quotient is truncated towards zero like in divide
+	public static DecimalInt divide(DecimalInt lhs, long rhs) {
+		if (rhs == 0)
+			throw new ArithmeticException("Division by zero");
+		
+		// divisors up to MAX_SMALL_DIVISOR are handled in a single pass without any temporary number
+		if (rhs >= -Limbs.MAX_SMALL_DIVISOR && rhs <= Limbs.MAX_SMALL_DIVISOR) {
+			int[] data = new int[lhs.mSize];
+			Limbs.divideBySmall(lhs.mData, lhs.mSize, Math.abs(rhs), data);
+			return new DecimalInt(data, lhs.mSize, lhs.mNegative ^ (rhs < 0));
+		}
+		return divide(lhs, valueOf(rhs))[0];
+	}
+	
+	// remainder of a division by a long, which has the sign of lhs like the remainder of divide
+	public static long mod(DecimalInt lhs, long rhs) {
+		if (rhs == 0)
+			throw new ArithmeticException("Division by zero");
+		
+		long remainder;
+		if (rhs >= -Limbs.MAX_SMALL_DIVISOR && rhs <= Limbs.MAX_SMALL_DIVISOR) {
+			remainder = Limbs.divideBySmall(lhs.mData, lhs.mSize, Math.abs(rhs), null);
+		}
+		else {
+			// the magnitude of the remainder is smaller than |rhs|, so it fits into a long
+			DecimalInt r = divide(lhs, valueOf(rhs))[1];
+			remainder = 0;
+			for (int i = r.mSize - 1; i >= 0; --i) {
+				remainder = remainder * BASE + r.mData[i];
 			}
-			// we went below our threshold
-			else {
-				// if that was the last digit, we are done
-				if (digit == 0)
+		}
+		return lhs.mNegative ? -remainder : remainder;
+	}
+	
+	// computes base^exponent by squaring and multiplying, starting at the most significant bit of the exponent
+	public static DecimalInt pow(DecimalInt base, int exponent) {
+		if (exponent < 0)
+			throw new IllegalArgumentException("Negative exponent " + exponent + " is not allowed.");
+		if (exponent == 0)
+			return valueOf(1);
+		
+		DecimalInt result = base;
+		for (int bit = Integer.highestOneBit(exponent) >>> 1; bit != 0; bit >>>= 1) {
+			result = square(result);
+			if ((exponent & bit) != 0) {
+				result = multiply(result, base);
+			}
+		}
+		return result;
+	}
+	
+	// computes base^exponent mod modulus for a positive modulus
+	// the result is in [0, modulus), also for a negative base, a negative exponent uses the inverse of the base
+	public static DecimalInt modPow(DecimalInt base, DecimalInt exponent, DecimalInt modulus) {
+		if (modulus.getSign() <= 0)
+			throw new ArithmeticException("Modulus must be positive.");
+		
+		if (exponent.mNegative)
+			return ModularExponentiation.modPow(modInverse(base, modulus), withSign(exponent, false), modulus);
+		return ModularExponentiation.modPow(mod(base, modulus), exponent, modulus);
+	}
+	
+	// return value mod modulus in [0, modulus) for a positive modulus
+	private static DecimalInt mod(DecimalInt value, DecimalInt modulus) {
+		DecimalInt reduced = divide(value, modulus)[1];
+		if (reduced.mNegative) {
+			reduced = add(reduced, modulus);
+		}
+		return reduced;
+	}
+	
+	// computes the greatest common divisor of the magnitudes, which is zero only if both are zero
+	// Lehmer's algorithm does most of the work on the leading digits, large operands of similar size are
+	// reduced by half-gcd matrices computed from their upper limbs
+	public static DecimalInt gcd(DecimalInt a, DecimalInt b) {
+		return GreatestCommonDivisor.gcd(withSign(a, false), withSign(b, false), null);
+	}
+	
+	// computes {g, x, y} with g = gcd(a, b) = a*x + b*y, where 0 <= |x| < |b|/g if b is not zero
+	public static DecimalInt[] extendedGcd(DecimalInt a, DecimalInt b) {
+		DecimalInt[] coefficients = new DecimalInt[1];
+		DecimalInt absA = withSign(a, false);
+		DecimalInt absB = withSign(b, false);
+		DecimalInt g = GreatestCommonDivisor.gcd(absA, absB, coefficients);
+		if (g.mSize == 0)
+			return new DecimalInt[]{g, g, g};
+		
+		DecimalInt x = coefficients[0];
+		DecimalInt y = valueOf(0);
+		if (b.mSize != 0) {
+			// all coefficients differ by multiples of b/g, the smallest nonnegative one is taken
+			x = mod(x, divide(absB, g)[0]);
+			y = divide(subtract(g, multiply(x, absA)), absB)[0];
+		}
+		return new DecimalInt[]{g, withSign(x, a.mNegative ^ x.mNegative), withSign(y, b.mNegative ^ y.mNegative)};
+	}
+	
+	// computes the x in [0, modulus) with value*x = 1 mod modulus for a positive modulus
+	public static DecimalInt modInverse(DecimalInt value, DecimalInt modulus) {
+		if (modulus.getSign() <= 0)
+			throw new ArithmeticException("Modulus must be positive.");
+		
+		DecimalInt[] result = extendedGcd(mod(value, modulus), modulus);
+		if (compare(result[0], valueOf(1)) != 0)
+			throw new ArithmeticException("Not invertible");
+		return result[1];
+	}
+	
+	// computes the integer square root, returns an array with the largest s with s*s <= value as the first
+	// element and the remainder value - s*s as the second
+	public static DecimalInt[] sqrt(DecimalInt value) {
+		if (value.mNegative)
+			throw new ArithmeticException("Square root of a negative number");
+		
+		DecimalInt root = sqrtFloor(value);
+		DecimalInt remainder = subtract(value, square(root));
+		// the root can be one too large
+		while (remainder.mNegative) {
+			remainder = add(remainder, subtract(add(root, root), 1));
+			root = subtract(root, 1);
+		}
+		return new DecimalInt[]{root, remainder};
+	}
+	
+	// return floor(sqrt(value)) or that plus one, for a nonnegative value
+	// the root of the upper half of the limbs gives the upper half of the limbs of the root, which makes
+	// one newton step from above enough for the lower half, so that the cost is a small multiple of one division
+	private static DecimalInt sqrtFloor(DecimalInt value) {
+		if (value.mSize <= 2) {
+			long word = value.mSize == 0 ? 0 : value.mData[0] + (value.mSize == 2 ? (long)value.mData[1] * BASE : 0);
+			long root = (long)Math.sqrt((double)word);
+			while (root * root > word) {
+				--root;
+			}
+			while ((root + 1) * (root + 1) <= word) {
+				++root;
+			}
+			return valueOf(root);
+		}
+		
+		// with shift <= (size-1)/4 the root of the upper part has at least shift limbs, which bounds the
+		// error after one step by 1/2, small values need a few more steps
+		int shift = Math.max(1, (value.mSize - 1) / 4);
+		boolean oneStep = (value.mSize - 1) / 4 >= 1;
+		DecimalInt high = sqrtFloor(value.getLimbs(2 * shift, value.mSize));
+		// the estimate is at least sqrt(value), and newton steps from above never fall below floor(sqrt(value))
+		DecimalInt x = add(high, 1).shiftLimbs(shift);
+		while (true) {
+			DecimalInt y = divide(add(x, divide(value, x)[0]), 2);
+			if (oneStep || compare(subtract(x, y), valueOf(1)) <= 0)
+				return y;
+			x = y;
+		}
+	}
+	
+	// computes the integer n-th root for n >= 1, i.e. the largest r with r^n <= value, truncated towards zero
+	// for negative values, which are only allowed for odd n
+	public static DecimalInt nthRoot(DecimalInt value, int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("Root of degree " + n + " is not allowed.");
+		if (value.mNegative && n % 2 == 0)
+			throw new ArithmeticException("Root of even degree of a negative number");
+		if (n == 1 || value.mSize == 0)
+			return value;
+		if (n == 2)
+			return withSign(sqrt(value)[0], value.mNegative);
+		return withSign(nthRootFloor(withSign(value, false), n), value.mNegative);
+	}
+	
+	// return floor(value^(1/n)) for a positive value and n >= 2
+	// like sqrtFloor, the root of the upper limbs gives the upper half of the limbs of the root,
+	// then newton steps from above converge quadratically
+	private static DecimalInt nthRootFloor(DecimalInt value, int n) {
+		int shift = value.mSize / (2 * n);
+		DecimalInt x;
+		if (shift == 0) {
+			// the root has at most two limbs and is estimated in floating point, with a margin so that it is too large
+			double top = value.mData[value.mSize - 1] + (value.mSize > 1 ? value.mData[value.mSize - 2] / (double)BASE : 0);
+			double log = Math.log10(top) + (double)BASE_DIGITS * (value.mSize - 1);
+			x = valueOf((long)(Math.pow(10, log / n) * (1 + 1e-9)) + 2);
+		}
+		else {
+			DecimalInt high = nthRootFloor(value.getLimbs(n * shift, value.mSize), n);
+			x = add(high, 1).shiftLimbs(shift);
+		}
+		
+		// x = ((n-1)*x + value/x^(n-1)) / n until it no longer decreases
+		while (true) {
+			DecimalInt y = divide(add(multiply(x, n - 1), divide(value, pow(x, n - 1))[0]), n);
+			if (compare(y, x) >= 0)
+				return x;
+			x = y;
+		}
+	}
+	
+	// multiply the magnitude of a number by a single limb
+	private static DecimalInt multiplyByLimb(DecimalInt lhs, int rhs) {
+		int[] data = new int[lhs.mSize + 2];
+		int size = Limbs.multiplyByLimb(lhs.mData, lhs.mSize, rhs, data);
+		return new DecimalInt(data, size, false);
+	}
+	
+	// divide the magnitude of a number by a single limb
+	private static DecimalInt[] divideByLimb(DecimalInt lhs, int rhs) {
+		int[] data = new int[lhs.mSize];
+		long remainder = Limbs.divideBySmall(lhs.mData, lhs.mSize, rhs, data);
+		return new DecimalInt[]{new DecimalInt(data, lhs.mSize, false), valueOf(remainder)};
+	}
+	
+	// divide the magnitudes with Knuth's algorithm D
+	private static DecimalInt[] divideKnuth(DecimalInt lhs, DecimalInt rhs) {
+		int n = rhs.mSize;
+		if (n == 1) {
+			return divideByLimb(lhs, rhs.mData[0]);
+		}
+		if (compareMagnitudes(lhs, rhs) < 0) {
+			return new DecimalInt[]{new DecimalInt(), lhs.getLimbs(0, lhs.mSize)};
+		}
+		int m = lhs.mSize - n;
+		
+		// normalize both numbers such that the most significant limb of the divisor is at least BASE/2,
+		// the quotient stays the same and the estimates of the quotient limbs are off by at most two
+		int factor = BASE / (rhs.mData[n - 1] + 1);
+		int[] u = Arrays.copyOf(multiplyByLimb(lhs, factor).mData, lhs.mSize + 1);
+		int[] v = Arrays.copyOf(multiplyByLimb(rhs, factor).mData, n);
+		long vTop = v[n - 1];
+		long vNext = v[n - 2];
+		
+		int[] q = new int[m + 1];
+		for (int j = m; j >= 0; --j) {
+			// estimate the quotient limb from the most significant limbs
+			long numerator = u[j + n] * (long)BASE + u[j + n - 1];
+			long estimate = numerator / vTop;
+			long rest = numerator % vTop;
+			while (estimate >= BASE || estimate * vNext > rest * BASE + u[j + n - 2]) {
+				--estimate;
+				rest += vTop;
+				if (rest >= BASE)
 					break;
-				// otherwise, go to the next digit
+			}
+			
+			// subtract estimate*v from the current window of u
+			long carry = 0;
+			int borrow = 0;
+			for (int i = 0; i < n; ++i) {
+				long product = estimate * v[i] + carry;
+				carry = product / BASE;
+				int word = u[i + j] - (int)(product % BASE) - borrow;
+				if (word < 0) {
+					word += BASE;
+					borrow = 1;
+				}
 				else {
-					result.mData[--digit] = (byte)9;
+					borrow = 0;
 				}
+				u[i + j] = word;
 			}
+			long top = u[j + n] - carry - borrow;
 			
-			check = DecimalInt.multiply(rhs, result);
-			remainder = DecimalInt.subtract(lhs, check);
+			// the estimate was still one too large, so add v back once
+			if (top < 0) {
+				--estimate;
+				int sumCarry = 0;
+				for (int i = 0; i < n; ++i) {
+					int word = u[i + j] + v[i] + sumCarry;
+					if (word >= BASE) {
+						word -= BASE;
+						sumCarry = 1;
+					}
+					else {
+						sumCarry = 0;
+					}
+					u[i + j] = word;
+				}
+				top += sumCarry;
+			}
+			u[j + n] = (int)top;
+			q[j] = (int)estimate;
 		}
-
-		check = DecimalInt.multiply(rhs, result);
-		remainder = DecimalInt.subtract(lhs, check);
-		return new DecimalInt[]{result, remainder};
+		DecimalInt quotient = new DecimalInt(q, m + 1, false);
+		
+		// the remainder is what is left of u, with the normalization undone
+		DecimalInt remainder = new DecimalInt(Arrays.copyOf(u, n), n, false);
+		return new DecimalInt[]{quotient, divideExactly(remainder, factor)};
+	}
+	
+	// divide the magnitudes with the recursive algorithm by Burnikel and Ziegler,
+	// which splits the dividend into blocks of the divisor's size and reduces each division
+	// of two blocks by one to two divisions of three half blocks by two, using fast multiplication
+	private static DecimalInt[] divideBurnikelZiegler(DecimalInt lhs, DecimalInt rhs) {
+		// choose the block size n = j*m, such that m is a power of two and j is below the threshold
+		int r = rhs.mSize;
+		int m = 1 << (32 - Integer.numberOfLeadingZeros(r / BURNIKEL_ZIEGLER_THRESHOLD));
+		int j = (r + m - 1) / m;
+		int n = j * m;
+		
+		// normalize both numbers such that the divisor has exactly n limbs
+		// and its most significant limb is at least BASE/2
+		int shift = n - r;
+		int factor = BASE / (rhs.mData[r - 1] + 1);
+		DecimalInt a = multiplyByLimb(lhs, factor).shiftLimbs(shift);
+		DecimalInt b = multiplyByLimb(rhs, factor).shiftLimbs(shift);
+		
+		// number of blocks of a, with room for a leading zero limb so that the first block is smaller than b
+		int t = Math.max(2, (a.mSize + n) / n);
+		
+		// divide the blocks from the most significant one downwards, every partial quotient fits into one block
+		int[] q = new int[t * n];
+		DecimalInt z = a.getLimbs((t - 2) * n, t * n);
+		DecimalInt[] qr;
+		for (int i = t - 2; ; --i) {
+			qr = divide2n1n(z, b, n);
+			if (qr[0].mSize > 0)
+				System.arraycopy(qr[0].mData, 0, q, i * n, qr[0].mSize);
+			if (i == 0)
+				break;
+			z = add(qr[1].shiftLimbs(n), a.getLimbs((i - 1) * n, i * n));
+		}
+		DecimalInt quotient = new DecimalInt(q, t * n, false);
+		
+		// undo the normalization of the remainder
+		return new DecimalInt[]{quotient, divideExactly(qr[1].getLimbs(shift, qr[1].mSize), factor)};
+	}
+	
+	// divide a number of at most 2n limbs by a normalized number of n limbs, the quotient must fit into n limbs
+	private static DecimalInt[] divide2n1n(DecimalInt a, DecimalInt b, int n) {
+		if ((n & 1) != 0 || n < BURNIKEL_ZIEGLER_THRESHOLD) {
+			return divideKnuth(a, b);
+		}
+		int half = n / 2;
+		
+		// divide the upper three and then the lower three half blocks
+		DecimalInt[] upper = divide3n2n(a.getLimbs(half, a.mSize), b, half);
+		DecimalInt[] lower = divide3n2n(add(upper[1].shiftLimbs(half), a.getLimbs(0, half)), b, half);
+		return new DecimalInt[]{add(upper[0].shiftLimbs(half), lower[0]), lower[1]};
+	}
+	
+	// divide a number of three blocks by a normalized number of two blocks of 'half' limbs each,
+	// the quotient must fit into a single block
+	private static DecimalInt[] divide3n2n(DecimalInt a, DecimalInt b, int half) {
+		DecimalInt a1 = a.getLimbs(2 * half, a.mSize);
+		DecimalInt a12 = a.getLimbs(half, a.mSize);
+		DecimalInt b1 = b.getLimbs(half, b.mSize);
+		DecimalInt b2 = b.getLimbs(0, half);
+		
+		// estimate the quotient from the upper blocks
+		DecimalInt quotient;
+		DecimalInt rest;
+		if (compareMagnitudes(a1, b1) < 0) {
+			DecimalInt[] qr = divide2n1n(a12, b1, half);
+			quotient = qr[0];
+			rest = qr[1];
+		}
+		else {
+			// the quotient is capped at BASE^half - 1, so rest = a12 - b1*(BASE^half - 1)
+			quotient = subtract(getPowerOfTen(half * BASE_DIGITS), 1);
+			rest = add(subtract(a12, b1.shiftLimbs(half)), b1);
+		}
+		
+		// the estimate is at most two too large, which shows as a negative remainder
+		DecimalInt remainder = subtract(add(rest.shiftLimbs(half), a.getLimbs(0, half)), multiply(quotient, b2));
+		while (remainder.getSign() < 0) {
+			remainder = add(remainder, b);
+			quotient = subtract(quotient, 1);
+		}
+		return new DecimalInt[]{quotient, remainder};
 	}
 	
 	// computes the factorial n!
+	// this uses the prime swing algorithm by Luschny: n! = ((n/2)!)^2 * swing(n), where the swing
+	// is a product of small prime powers that can be read off the prime factorization directly
 	public static DecimalInt factorial(int n) {
-		DecimalInt result = new DecimalInt(1);
-	    for (int i = 1; i <= n; ++i) {
-	    	result = DecimalInt.multiply(result, new DecimalInt(i));
-	    }
-	    return result;
+		if (n <= SMALL_FACTORIAL_LIMIT) {
+			return valueOf(smallFactorial(n));
+		}
+		PrimeSieve sieve = new PrimeSieve(n);
+		return factorialSwing(n, sieve.getPrimes());
+	}
+	
+	// computes n! for n <= SMALL_FACTORIAL_LIMIT
+	private static long smallFactorial(int n) {
+		long result = 1;
+		for (int i = 2; i <= n; ++i) {
+			result *= i;
+		}
+		return result;
+	}
+	
+	// recursive part of the prime swing factorial, primes must contain all primes up to n
+	private static DecimalInt factorialSwing(int n, int[] primes) {
+		if (n <= SMALL_FACTORIAL_LIMIT) {
+			return valueOf(smallFactorial(n));
+		}
+		DecimalInt half = factorialSwing(n / 2, primes);
+		return multiply(square(half), swing(n, primes));
+	}
+	
+	// computes the swinging factorial n!/((n/2)!)^2 from its prime factorization
+	private static DecimalInt swing(int n, int[] primes) {
+		long[] factors = new long[primes.length];
+		int count = 0;
+		int sqrtN = (int)Math.sqrt(n);
+		for (int p : primes) {
+			if (p > n) {
+				break;
+			}
+			if (p <= sqrtN) {
+				// the exponent of p is the number of odd quotients n/p^i, and p^e <= n
+				long power = 1;
+				for (int q = n / p; q > 0; q /= p) {
+					if ((q & 1) != 0)
+						power *= p;
+				}
+				if (power > 1)
+					factors[count++] = power;
+			}
+			else if (p <= n / 3) {
+				// larger primes occur at most once
+				if (((n / p) & 1) != 0)
+					factors[count++] = p;
+			}
+			else if (p > n / 2) {
+				// the primes between n/2 and n always occur exactly once
+				factors[count++] = p;
+			}
+		}
+		return product(factors, count);
+	}
+	
+	// multiply factors[0, count), all of them at most Integer.MAX_VALUE, in a balanced product tree
+	// neighbouring factors are first combined as long as their product fits into an int
+	private static DecimalInt product(long[] factors, int count) {
+		long[] packed = new long[count + 1];
+		int packedCount = 0;
+		long current = 1;
+		for (int i = 0; i < count; ++i) {
+			if (current > Integer.MAX_VALUE / factors[i]) {
+				packed[packedCount++] = current;
+				current = 1;
+			}
+			current *= factors[i];
+		}
+		packed[packedCount++] = current;
+		return productTree(packed, 0, packedCount);
+	}
+	
+	// multiply factors[from, to) by splitting the range in halves, so that both operands of every
+	// multiplication have about the same size and benefit from the fast multiplication algorithms
+	private static DecimalInt productTree(long[] factors, int from, int to) {
+		if (to - from <= PRODUCT_TREE_LEAF_SIZE) {
+			DecimalInt result = valueOf(factors[from]);
+			for (int i = from + 1; i < to; ++i) {
+				result = multiply(result, factors[i]);
+			}
+			return result;
+		}
+		int mid = (from + to) >>> 1;
+		// every packed factor has about one limb, so the range size estimates the size of the product
+		if (to - from >= sParallelThreshold) {
+			DecimalInt[] halves = new DecimalInt[2];
+			invokeAll(() -> halves[0] = productTree(factors, from, mid), () -> halves[1] = productTree(factors, mid, to));
+			return multiply(halves[0], halves[1]);
+		}
+		return multiply(productTree(factors, from, mid), productTree(factors, mid, to));
 	}
 	
 	// binomial coefficient "n over k" aka "nCr"
 	public static DecimalInt combinations(int n, int k) {
+		if (k < 0 || k > n)
+			return valueOf(0);
+		
 		// exploit symmetry
 		if (2*k > n)
 			k = n - k;
 		
-		// initialize with 1
-		DecimalInt result = new DecimalInt(1);
+		// for small k the multiplicative formula is cheaper than sieving all primes up to n
+		if ((long)k * k < n) {
+			// initialize with 1
+			DecimalInt result = valueOf(1);
+			
+			for (int i = 1; i <= k; ++i) {
+				// result *= n - k + i
+				result = DecimalInt.multiply(result, n - k + i);
+				// result /= i
+				result = DecimalInt.divide(result, i);
+			}
+			
+			return result;
+		}
 		
-		for (int i = 1; i <= k; ++i) {
-			// result *= n - k + i
-			result = DecimalInt.multiply(result, new DecimalInt(n - k + i));
-			// result /= i
-			result = DecimalInt.divide(result, new DecimalInt(i))[0];
+		// otherwise build the result from its prime factorization, which needs no division at all
+		int[] primes = new PrimeSieve(n).getPrimes();
+		long[] factors = new long[primes.length];
+		int count = 0;
+		for (int p : primes) {
+			if (p > n - k) {
+				// primes above n-k only occur in the numerator
+				factors[count++] = p;
+			}
+			else if (p <= n / 2) {
+				// Legendre's formula for the exponent of p in n!/(k!(n-k)!), every power of p contributes
+				// at most one, which is a carry when adding k and n-k in base p (Kummer), so p^e <= n
+				long power = 1;
+				for (long q = p; q <= n; q *= p) {
+					if (n / q - k / q - (n - k) / q != 0)
+						power *= p;
+				}
+				if (power > 1)
+					factors[count++] = power;
+			}
+			// primes between n/2 and n-k occur once in n! and once in (n-k)!, so they cancel out
 		}
 		
-		return result;
+		return product(factors, count);
 	}
 }
@@ -0,0 +1,43 @@
+package de.backson.apm;
+
+import java.util.function.Consumer;
+
+// running sum of many numbers in carry-save form: every value is added limb by limb into wide limbs
+// without propagating any carry, which only happens when get is called or after billions of additions
+// like LongSummaryStatistics it is not thread safe, parallel streams give each thread its own accumulator
+// and merge them with combine, see DecimalInt.summing
+public class DecimalIntAccumulator implements Consumer<DecimalInt> {
+
+	private final LimbAccumulator mSum;
+
+	// initialize to zero
+	public DecimalIntAccumulator() {
+		mSum = new LimbAccumulator();
+	}
+
+	// add a number
+	@Override
+	public void accept(DecimalInt value) {
+		mSum.add(value, value.isNegative());
+	}
+
+	// add a long
+	public void accept(long value) {
+		mSum.add(value);
+	}
+
+	// add the sum of another accumulator, whose value stays unchanged
+	public void combine(DecimalIntAccumulator other) {
+		mSum.add(other.mSum);
+	}
+
+	// return the sum of all values so far, the accumulator can still be used afterwards
+	public DecimalInt get() {
+		return mSum.toDecimalInt();
+	}
+
+	@Override
+	public String toString() {
+		return get().toString();
+	}
+}
@@ -1,208 +1,217 @@
 package de.backson.apm;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class DecimalIntParser {
-	private String string;
-	
-	private List<Byte> digits;
-	private int sign;
-	private int base;
-	
-	public DecimalIntParser(String s) {
+
+	// the input is exactly one of these three
+	private CharSequence mSequence;
+	private char[] mChars;
+	// little endian, so that eight digits can be read at once with the first one in the lowest byte
+	private ByteBuffer mBytes;
+	private int mOffset;
+	private int mLength;
+
+	private DecimalInt mValue;
+	private int mSign;
+	private int mBase;
+
+	public DecimalIntParser(CharSequence s) {
 		parse(s);
 	}
-	
-	public List<Byte> getDigits() {
-		return digits;
+
+	public DecimalIntParser(char[] chars, int offset, int length) {
+		parse(chars, offset, length);
 	}
-	
+
+	// the bytes are ASCII characters
+	public DecimalIntParser(byte[] ascii, int offset, int length) {
+		parse(ascii, offset, length);
+	}
+
+	// parse the remaining ASCII characters of the buffer, without changing its position
+	public DecimalIntParser(ByteBuffer ascii) {
+		parse(ascii);
+	}
+
+	// return the parsed value
+	public DecimalInt getValue() {
+		return mValue;
+	}
+
 	public int getSign() {
-		return sign;
+		return mSign;
 	}
-	
+
 	public int getBase() {
-		return base;
+		return mBase;
+	}
+
+	public void parse(CharSequence s) {
+		setInput(s, null, null, 0, s.length());
+		parse();
 	}
-	
-	public void parse(String s) {
-		string = s;
+
+	public void parse(char[] chars, int offset, int length) {
+		checkRange(chars.length, offset, length);
+		setInput(null, chars, null, offset, length);
 		parse();
 	}
-	
-	private enum ParsingState {
-		START, SIGN, ZERO, BASE, ZEROS, DIGITS
-	}
-	
-	private int index;
-	private ParsingState state;
-	
-	public void parse() {
-		
-		index = 0;
-		state = ParsingState.START;
-		
-		digits = new ArrayList<Byte>();
-		sign = 1;
-		base = 10;
-		
-		while (index < string.length()) {
-			switch (state) {
-			case START:
-				stateStart();
-				break;
-			case SIGN:
-				stateSign();
-				break;
-			case ZERO:
-				stateZero();
-				break;
-			case BASE:
-				stateBase();
-				break;
-			case ZEROS:
-				stateZeros();
-				break;
-			case DIGITS:
-				stateDigits();
-				break;
-			default:
-				throw new RuntimeException("Illegal internal state '" + state + "'");
+
+	public void parse(byte[] ascii, int offset, int length) {
+		checkRange(ascii.length, offset, length);
+		setInput(null, null, ByteBuffer.wrap(ascii).order(ByteOrder.LITTLE_ENDIAN), offset, length);
+		parse();
+	}
+
+	public void parse(ByteBuffer ascii) {
+		setInput(null, null, ascii.duplicate().order(ByteOrder.LITTLE_ENDIAN), ascii.position(), ascii.remaining());
+		parse();
+	}
+
+	private static void checkRange(int arrayLength, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > arrayLength - length)
+			throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + arrayLength);
+	}
+
+	private void setInput(CharSequence sequence, char[] chars, ByteBuffer bytes, int offset, int length) {
+		mSequence = sequence;
+		mChars = chars;
+		mBytes = bytes;
+		mOffset = offset;
+		mLength = length;
+	}
+
+	private char charAt(int index) {
+		if (mBytes != null)
+			return (char)(mBytes.get(mOffset + index) & 0xFF);
+		if (mChars != null)
+			return mChars[mOffset + index];
+		return mSequence.charAt(index);
+	}
+
+	// grammar: [+|-] [0x|0X|0b|0B] digits, where digits must not be empty
+	private void parse() {
+		int index = 0;
+		mSign = 1;
+		mBase = 10;
+
+		// sign
+		if (index < mLength) {
+			char c = charAt(index);
+			if (c == '+' || c == '-') {
+				mSign = c == '-' ? -1 : +1;
+				index++;
 			}
 		}
-		
-		switch (state) {
-		case ZERO:
-		case ZEROS:
-		case DIGITS:
-			break;
-		default:
-			throw new RuntimeException("Syntax error: Unexpected end of string");
+
+		// base prefix
+		if (index + 1 < mLength && charAt(index) == '0') {
+			char c = charAt(index + 1);
+			if (c == 'x' || c == 'X') {
+				mBase = 16;
+				index += 2;
+			}
+			else if (c == 'b' || c == 'B') {
+				mBase = 2;
+				index += 2;
+			}
 		}
-	}
 
-	private void stateStart() {
-		char c = string.charAt(index);
-		switch (c) {
-		// plus sign
-		case '+':
-			sign = +1;
-			state = ParsingState.SIGN;
-			index++;
-			break;
-		// minus sign
-		case '-':
-			sign = -1;
-			state = ParsingState.SIGN;
-			index++;
-			break;
-		// zero
-		case '0':
-			state = ParsingState.ZERO;
+		// leading zeros
+		boolean zeros = false;
+		while (index < mLength && charAt(index) == '0') {
+			zeros = true;
 			index++;
-			break;
-		// other digits
-		default:
-			state = ParsingState.DIGITS;
-			break;
 		}
+
+		int count = mLength - index;
+		if (count == 0) {
+			if (!zeros)
+				throw new RuntimeException("Syntax error: Unexpected end of string");
+			// zero is not negative, i.e. "-0" equals "+0"
+			mValue = new DecimalInt();
+			return;
+		}
+
+		DecimalInt magnitude;
+		if (mBase == 10) {
+			magnitude = parseDecimal(index, count);
+		}
+		else {
+			byte[] digits = new byte[count];
+			for (int i = 0; i < count; ++i) {
+				digits[i] = (byte)digit(index + i);
+			}
+			magnitude = RadixConversion.fromDigits(digits, 0, count, mBase);
+		}
+		mValue = DecimalInt.fromLimbs(magnitude.getLimbData(), magnitude.getLimbCount(), mSign < 0);
 	}
-	
-	private void stateSign() {
-		char c = string.charAt(index);
-		switch (c) {
-		// zero
-		case '0':
-			state = ParsingState.ZERO;
-			index++;
-			break;
-		// other digits
-		default:
-			state = ParsingState.DIGITS;
-			break;
+
+	// pack decimal digits straight into limbs, nine digits at a time
+	private DecimalInt parseDecimal(int index, int count) {
+		int size = (count + DecimalInt.BASE_DIGITS - 1) / DecimalInt.BASE_DIGITS;
+		int[] limbs = new int[size];
+		// the most significant limb takes the digits that do not fill a whole limb
+		int chunk = count - DecimalInt.BASE_DIGITS * (size - 1);
+		for (int limb = size - 1; limb >= 0; --limb) {
+			limbs[limb] = parseChunk(index, chunk);
+			index += chunk;
+			chunk = DecimalInt.BASE_DIGITS;
 		}
+		return DecimalInt.fromLimbs(limbs, size, false);
 	}
 
-	private void stateZero() {
-		char c = string.charAt(index);
-		switch (c) {
-		// binary
-		case 'b':
-		case 'B':
-			base = 2;
-			state = ParsingState.BASE;
-			index++;
-			break;
-		// hex
-		case 'x':
-		case 'X':
-			base = 16;
-			state = ParsingState.BASE;
-			index++;
-			break;
-		// other digits
-		case '0':
-			state = ParsingState.ZEROS;
-			break;
-		default:
-			state = ParsingState.DIGITS;
-			break;
+	// return the value of 'count' <= 9 decimal digits
+	private int parseChunk(int index, int count) {
+		int result = 0;
+		int end = index + count;
+		// eight ASCII digits can be converted at once within a long
+		if (mBytes != null && count >= 8) {
+			long word = mBytes.getLong(mOffset + end - 8);
+			if (isEightDigits(word)) {
+				for (int i = index; i < end - 8; ++i) {
+					result = result * 10 + digit(i);
+				}
+				return result * 100000000 + eightDigits(word);
+			}
+		}
+		for (int i = index; i < end; ++i) {
+			result = result * 10 + digit(i);
 		}
+		return result;
 	}
 
-	private void stateBase() {
-		state = ParsingState.ZEROS;
+	// return true if all eight bytes are ASCII digits
+	private static boolean isEightDigits(long word) {
+		return (((word + 0x4646464646464646L) | (word - 0x3030303030303030L)) & 0x8080808080808080L) == 0;
 	}
 
-	private void stateZeros() {
-		char c = string.charAt(index);
-		switch (c) {
-		case '0':
-			index++;
-			break;
-		// other digits
-		default:
-			state = ParsingState.DIGITS;
-			break;
-		}
+	// return the value of eight ASCII digits, the first one in the lowest byte
+	private static int eightDigits(long word) {
+		word -= 0x3030303030303030L;
+		// combine neighbouring digits to pairs, then pairs to quadruples and those to the result
+		word = word * 10 + (word >>> 8);
+		word = (((word & 0x000000FF000000FFL) * (100 + (1000000L << 32)))
+				+ (((word >>> 16) & 0x000000FF000000FFL) * (1 + (10000L << 32)))) >>> 32;
+		return (int)word;
 	}
 
-	private void stateDigits() {
-		char c = string.charAt(index);
-		byte b = -1;
-		switch (c) {
-		case '0': b = 0; break;
-		case '1': b = 1; break;
-		case '2': b = 2; break;
-		case '3': b = 3; break;
-		case '4': b = 4; break;
-		case '5': b = 5; break;
-		case '6': b = 6; break;
-		case '7': b = 7; break;
-		case '8': b = 8; break;
-		case '9': b = 9; break;
-		case 'a':
-		case 'A': b = 10; break;
-		case 'b':
-		case 'B': b = 11; break;
-		case 'c':
-		case 'C': b = 12; break;
-		case 'd':
-		case 'D': b = 13; break;
-		case 'e':
-		case 'E': b = 14; break;
-		case 'f':
-		case 'F': b = 15; break;
-		default: break;
-		}
-		
-		if (b < 0 || b >= base) {
-			throw new IllegalArgumentException("Illegal symbol at position " + index + " of string '" + string + "'");
+	// return the value of the digit at the given index, which has to be valid in the current base
+	private int digit(int index) {
+		char c = charAt(index);
+		int b = -1;
+		if (c >= '0' && c <= '9')
+			b = c - '0';
+		else if (c >= 'a' && c <= 'f')
+			b = c - 'a' + 10;
+		else if (c >= 'A' && c <= 'F')
+			b = c - 'A' + 10;
+
+		if (b < 0 || b >= mBase) {
+			throw new IllegalArgumentException("Illegal symbol '" + c + "' at position " + index);
 		}
-		
-		index++;
-		
-		digits.add(b);
+		return b;
 	}
 }
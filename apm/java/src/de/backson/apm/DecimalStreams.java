@@ -0,0 +1,163 @@
+package de.backson.apm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+// reading and writing decimal text in chunks, so that huge numbers never exist as a string
+final class DecimalStreams {
+
+	private static final int BASE_DIGITS = DecimalInt.BASE_DIGITS;
+
+	// the number of limbs formatted into one chunk before it is written
+	private static final int CHUNK_LIMBS = 1 << 12;
+
+	// the initial size of the buffer for channels that cannot be mapped
+	private static final int READ_BUFFER = 1 << 16;
+
+	private DecimalStreams() {
+	}
+
+	// parse everything from the current position to the end of the channel
+	// file channels are mapped into memory, other channels are read into a growing buffer
+	static DecimalInt read(ReadableByteChannel channel) throws IOException {
+		if (channel instanceof FileChannel) {
+			FileChannel file = (FileChannel)channel;
+			long position = file.position();
+			long length = file.size() - position;
+			if (length > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("File with " + length + " bytes is too large.");
+			DecimalInt result = parse(file.map(FileChannel.MapMode.READ_ONLY, position, length));
+			file.position(position + length);
+			return result;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER);
+		while (channel.read(buffer) >= 0) {
+			if (!buffer.hasRemaining()) {
+				if (buffer.capacity() == Integer.MAX_VALUE)
+					throw new IllegalArgumentException("Input is too large.");
+				ByteBuffer larger = ByteBuffer.allocate((int)Math.min(2L * buffer.capacity(), Integer.MAX_VALUE));
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+		buffer.flip();
+		return parse(buffer);
+	}
+
+	// parse the remaining ASCII characters of the buffer, ignoring surrounding whitespace like a final line break
+	private static DecimalInt parse(ByteBuffer buffer) {
+		int from = buffer.position();
+		int to = buffer.limit();
+		while (from < to && isWhitespace(buffer.get(from))) {
+			++from;
+		}
+		while (to > from && isWhitespace(buffer.get(to - 1))) {
+			--to;
+		}
+		ByteBuffer digits = buffer.duplicate();
+		digits.position(from);
+		digits.limit(to);
+		return new DecimalIntParser(digits).getValue();
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+
+	// write the decimal digits of the value in ASCII, the same text as toString
+	static void write(DecimalInt value, WritableByteChannel channel) throws IOException {
+		int[] limbs = value.getLimbData();
+		int size = value.getLimbCount();
+		byte[] chunk = new byte[CHUNK_LIMBS * BASE_DIGITS + 1];
+		ByteBuffer buffer = ByteBuffer.wrap(chunk);
+
+		int pos = 0;
+		if (size == 0) {
+			chunk[pos++] = '0';
+		}
+		else {
+			if (value.isNegative())
+				chunk[pos++] = '-';
+			pos += DecimalInt.digitCount(limbs[size - 1]);
+			Limbs.formatLeading(limbs[size - 1], chunk, pos);
+		}
+		for (int i = size - 2; i >= -1; --i) {
+			// flush whenever the chunk is full and at the end
+			if (i < 0 || pos + BASE_DIGITS > chunk.length) {
+				buffer.clear().limit(pos);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				pos = 0;
+			}
+			if (i >= 0) {
+				Limbs.format(limbs[i], chunk, pos);
+				pos += BASE_DIGITS;
+			}
+		}
+	}
+
+	// append the decimal digits of the value, the same text as toString
+	static void write(DecimalInt value, Appendable out) throws IOException {
+		if (out instanceof StringBuilder) {
+			append(value, (StringBuilder)out);
+			return;
+		}
+
+		int[] limbs = value.getLimbData();
+		int size = value.getLimbCount();
+		if (size == 0) {
+			out.append('0');
+			return;
+		}
+		if (value.isNegative())
+			out.append('-');
+
+		char[] chunk = new char[CHUNK_LIMBS * BASE_DIGITS];
+		int pos = DecimalInt.digitCount(limbs[size - 1]);
+		Limbs.formatLeading(limbs[size - 1], chunk, pos);
+		for (int i = size - 2; i >= -1; --i) {
+			if (i < 0 || pos + BASE_DIGITS > chunk.length) {
+				out.append(CharBuffer.wrap(chunk, 0, pos));
+				pos = 0;
+			}
+			if (i >= 0) {
+				Limbs.format(limbs[i], chunk, pos);
+				pos += BASE_DIGITS;
+			}
+		}
+	}
+
+	// append the decimal digits of the value after reserving the exact space
+	static void append(DecimalInt value, StringBuilder sb) {
+		int[] limbs = value.getLimbData();
+		int size = value.getLimbCount();
+		if (size == 0) {
+			sb.append('0');
+			return;
+		}
+		sb.ensureCapacity(sb.length() + (value.isNegative() ? 1 : 0) + value.getSize());
+		if (value.isNegative())
+			sb.append('-');
+
+		char[] chunk = new char[Math.min(size, CHUNK_LIMBS) * BASE_DIGITS];
+		int pos = DecimalInt.digitCount(limbs[size - 1]);
+		Limbs.formatLeading(limbs[size - 1], chunk, pos);
+		for (int i = size - 2; i >= -1; --i) {
+			if (i < 0 || pos + BASE_DIGITS > chunk.length) {
+				sb.append(chunk, 0, pos);
+				pos = 0;
+			}
+			if (i >= 0) {
+				Limbs.format(limbs[i], chunk, pos);
+				pos += BASE_DIGITS;
+			}
+		}
+	}
+}
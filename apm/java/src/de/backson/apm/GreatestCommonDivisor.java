@@ -0,0 +1,252 @@
+package de.backson.apm;
+
+// greatest common divisors with Lehmer's algorithm and a half-gcd recursion for large operands
+// every reduction step multiplies the pair (a, b) by a 2x2 matrix of determinant +1 or -1, which keeps the gcd,
+// so a step that is computed from truncated numbers and turns out to be less than optimal costs speed, but never correctness
+final class GreatestCommonDivisor {
+
+	private static final int BASE = DecimalInt.BASE;
+
+	// operand size in limbs from which on the matrices of whole Lehmer phases are computed recursively
+	private static final int HALF_GCD_THRESHOLD = 600;
+
+	// LONG_POWERS_OF_TEN[i] = 10^i
+	private static final long[] LONG_POWERS_OF_TEN = new long[19];
+
+	static {
+		LONG_POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < LONG_POWERS_OF_TEN.length; ++i) {
+			LONG_POWERS_OF_TEN[i] = 10 * LONG_POWERS_OF_TEN[i - 1];
+		}
+	}
+
+	private GreatestCommonDivisor() {
+	}
+
+	// the matrix [[m00, m01], [m10, m11]], which maps (a, b) to (m00*a + m01*b, m10*a + m11*b)
+	private static final class Matrix {
+		static final Matrix IDENTITY = new Matrix(DecimalInt.valueOf(1), DecimalInt.valueOf(0), DecimalInt.valueOf(0), DecimalInt.valueOf(1));
+
+		final DecimalInt m00;
+		final DecimalInt m01;
+		final DecimalInt m10;
+		final DecimalInt m11;
+
+		Matrix(DecimalInt m00, DecimalInt m01, DecimalInt m10, DecimalInt m11) {
+			this.m00 = m00;
+			this.m01 = m01;
+			this.m10 = m10;
+			this.m11 = m11;
+		}
+
+		// return this * rhs, i.e. first rhs and then this
+		Matrix multiply(Matrix rhs) {
+			return new Matrix(
+					dot(m00, rhs.m00, m01, rhs.m10), dot(m00, rhs.m01, m01, rhs.m11),
+					dot(m10, rhs.m00, m11, rhs.m10), dot(m10, rhs.m01, m11, rhs.m11));
+		}
+
+		private static DecimalInt dot(DecimalInt a, DecimalInt b, DecimalInt c, DecimalInt d) {
+			return DecimalInt.add(DecimalInt.multiply(a, b), DecimalInt.multiply(c, d));
+		}
+	}
+
+	// a pair a >= b >= 0 with optionally the product of all steps so far, which only the half-gcd recursion needs,
+	// and optionally the coefficients sa and sb of the initial first operand a0, i.e. a = sa*a0 + ...*b0 and
+	// b = sb*a0 + ...*b0, which row swaps keep intact
+	private static final class State {
+		DecimalInt a;
+		DecimalInt b;
+		Matrix matrix;
+		DecimalInt sa;
+		DecimalInt sb;
+
+		State(DecimalInt a, DecimalInt b, boolean product, boolean cofactors) {
+			this.a = a;
+			this.b = b;
+			if (product)
+				matrix = Matrix.IDENTITY;
+			if (cofactors) {
+				sa = DecimalInt.valueOf(1);
+				sb = DecimalInt.valueOf(0);
+			}
+			normalize();
+		}
+
+		// apply the matrix [[A, B], [C, D]] to the pair
+		void step(long A, long B, long C, long D) {
+			step(new Matrix(DecimalInt.valueOf(A), DecimalInt.valueOf(B), DecimalInt.valueOf(C), DecimalInt.valueOf(D)));
+		}
+
+		void step(Matrix m) {
+			DecimalInt a1 = DecimalInt.add(DecimalInt.multiply(m.m00, a), DecimalInt.multiply(m.m01, b));
+			DecimalInt b1 = DecimalInt.add(DecimalInt.multiply(m.m10, a), DecimalInt.multiply(m.m11, b));
+			a = a1;
+			b = b1;
+			if (matrix != null)
+				matrix = m.multiply(matrix);
+			if (sa != null) {
+				DecimalInt sa1 = DecimalInt.add(DecimalInt.multiply(m.m00, sa), DecimalInt.multiply(m.m01, sb));
+				DecimalInt sb1 = DecimalInt.add(DecimalInt.multiply(m.m10, sa), DecimalInt.multiply(m.m11, sb));
+				sa = sa1;
+				sb = sb1;
+			}
+			normalize();
+		}
+
+		// one step of Euclid's algorithm with a full division
+		void divisionStep() {
+			DecimalInt q = DecimalInt.divide(a, b)[0];
+			step(new Matrix(DecimalInt.valueOf(0), DecimalInt.valueOf(1), DecimalInt.valueOf(1), negate(q)));
+		}
+
+		// restore a >= b >= 0 by negating and swapping rows, which keeps the determinant at +1 or -1
+		private void normalize() {
+			if (a.isNegative()) {
+				a = negate(a);
+				if (matrix != null)
+					matrix = new Matrix(negate(matrix.m00), negate(matrix.m01), matrix.m10, matrix.m11);
+				if (sa != null)
+					sa = negate(sa);
+			}
+			if (b.isNegative()) {
+				b = negate(b);
+				if (matrix != null)
+					matrix = new Matrix(matrix.m00, matrix.m01, negate(matrix.m10), negate(matrix.m11));
+				if (sb != null)
+					sb = negate(sb);
+			}
+			if (DecimalInt.compareMagnitudes(a, b) < 0) {
+				DecimalInt t = a;
+				a = b;
+				b = t;
+				if (matrix != null)
+					matrix = new Matrix(matrix.m10, matrix.m11, matrix.m00, matrix.m01);
+				if (sa != null) {
+					t = sa;
+					sa = sb;
+					sb = t;
+				}
+			}
+		}
+	}
+
+	private static DecimalInt negate(DecimalInt value) {
+		return DecimalInt.withSign(value, !value.isNegative());
+	}
+
+	// return gcd(a, b) for a, b >= 0, and if coefficients is not null, store x in coefficients[0]
+	// so that gcd = x*a + y*b for some y
+	static DecimalInt gcd(DecimalInt a, DecimalInt b, DecimalInt[] coefficients) {
+		State state = new State(a, b, false, coefficients != null);
+		while (state.b.getSign() != 0) {
+			int size = state.a.getLimbCount();
+			if (state.b.getLimbCount() >= HALF_GCD_THRESHOLD && size - state.b.getLimbCount() < size / 4) {
+				state.step(halfGcd(state.a, state.b));
+				// the truncated operands can fail to predict even a single quotient
+				if (state.a.getLimbCount() >= size && state.b.getSign() != 0)
+					state.divisionStep();
+			}
+			else if (!lehmerStep(state)) {
+				state.divisionStep();
+			}
+		}
+		if (coefficients != null)
+			coefficients[0] = state.sa;
+		return state.a;
+	}
+
+	// one step of Lehmer's algorithm, which simulates Euclid's algorithm on the leading 18 digits of a and b
+	// as long as the quotients are certain to be those of the full numbers, returns false if not even one was certain
+	private static boolean lehmerStep(State state) {
+		int[] aLimbs = state.a.getLimbData();
+		int[] bLimbs = state.b.getLimbData();
+		int aSize = state.a.getLimbCount();
+		int bSize = state.b.getLimbCount();
+
+		// both operands are shifted by the same amount, so that the leading digits of a fill a long
+		long x;
+		long y;
+		if (aSize <= 2) {
+			x = limb(aLimbs, aSize, 0) + (long)limb(aLimbs, aSize, 1) * BASE;
+			y = limb(bLimbs, bSize, 0) + (long)limb(bLimbs, bSize, 1) * BASE;
+		}
+		else {
+			int d = DecimalInt.digitCount(aLimbs[aSize - 1]);
+			x = leading(aLimbs, aSize, aSize, d);
+			y = leading(bLimbs, bSize, aSize, d);
+		}
+
+		// Knuth's algorithm L, the quotients are certain if they agree for both extremes of the cofactors
+		long A = 1;
+		long B = 0;
+		long C = 0;
+		long D = 1;
+		while (y + C != 0 && y + D != 0) {
+			long q = (x + A) / (y + C);
+			if (q != (x + B) / (y + D))
+				break;
+			long t = A - q * C;
+			A = C;
+			C = t;
+			t = B - q * D;
+			B = D;
+			D = t;
+			t = x - q * y;
+			x = y;
+			y = t;
+		}
+		if (B == 0)
+			return false;
+		state.step(A, B, C, D);
+		return true;
+	}
+
+	private static int limb(int[] limbs, int size, int index) {
+		return index < size ? limbs[index] : 0;
+	}
+
+	// return the limbs from index n-3 on of a number with n = reference limbs, divided by 10^d
+	private static long leading(int[] limbs, int size, int reference, int d) {
+		long high = limb(limbs, size, reference - 1);
+		long low = (long)limb(limbs, size, reference - 2) * BASE + limb(limbs, size, reference - 3);
+		return high * LONG_POWERS_OF_TEN[18 - d] + low / LONG_POWERS_OF_TEN[d];
+	}
+
+	// return a matrix that reduces a >= b > 0 with n limbs to about n/2 limbs
+	// the matrices for the upper halves of the limbs also reduce the full numbers, as long as the quotients agree,
+	// which they do for all but the last few steps
+	private static Matrix halfGcd(DecimalInt a, DecimalInt b) {
+		int n = a.getLimbCount();
+		int half = n / 2;
+		if (b.getLimbCount() <= half)
+			return Matrix.IDENTITY;
+
+		State state = new State(a, b, true, false);
+		if (n < HALF_GCD_THRESHOLD) {
+			while (state.b.getLimbCount() > half) {
+				if (!lehmerStep(state))
+					state.divisionStep();
+			}
+			return state.matrix;
+		}
+
+		// the upper n-half limbs are reduced to about half of that, which takes the full numbers to about 3n/4 limbs
+		state.step(halfGcd(shiftRight(a, half), shiftRight(b, half)));
+		if (state.b.getLimbCount() <= half)
+			return state.matrix;
+		state.divisionStep();
+		if (state.b.getLimbCount() <= half)
+			return state.matrix;
+
+		// the upper 2*(size-half) limbs are reduced by half, which takes the full numbers to about half limbs
+		int shift = Math.max(0, 2 * half - state.a.getLimbCount());
+		state.step(halfGcd(shiftRight(state.a, shift), shiftRight(state.b, shift)));
+		return state.matrix;
+	}
+
+	// return value / BASE^limbs for a nonnegative value
+	private static DecimalInt shiftRight(DecimalInt value, int limbs) {
+		return value.getLimbs(limbs, value.getLimbCount());
+	}
+}
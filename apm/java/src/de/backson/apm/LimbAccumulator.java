@@ -0,0 +1,165 @@
+package de.backson.apm;
+
+import java.util.Arrays;
+
+// a signed sum in wide limbs of base 10^9: every long collects limbs and products of limbs without any carry,
+// the carries are only propagated when the next addition could overflow a long, and once at the end
+final class LimbAccumulator {
+
+	private static final long BASE = DecimalInt.BASE;
+
+	// the largest magnitude of a product of two limbs
+	private static final long PRODUCT = (BASE - 1) * (BASE - 1);
+
+	// the bound for the magnitude of a slot, which leaves room for adding the carry from the slot below
+	private static final long CAPACITY = Long.MAX_VALUE - 16 * BASE;
+
+	private long[] mData;
+	// the number of slots in use
+	private int mSize;
+	// an upper bound of the magnitudes added to any slot since the carries were propagated
+	private long mLoad;
+
+	LimbAccumulator() {
+		this(1);
+	}
+
+	LimbAccumulator(int capacity) {
+		mData = new long[Math.max(capacity, 1)];
+	}
+
+	// add or subtract the magnitude of value
+	void add(DecimalInt value, boolean subtract) {
+		int[] limbs = value.getLimbData();
+		int size = value.getLimbCount();
+		reserve(size, BASE - 1);
+		long[] data = mData;
+		if (subtract) {
+			for (int i = 0; i < size; ++i) {
+				data[i] -= limbs[i];
+			}
+		}
+		else {
+			for (int i = 0; i < size; ++i) {
+				data[i] += limbs[i];
+			}
+		}
+	}
+
+	// add a long, which spans at most three slots
+	void add(long value) {
+		reserve(3, BASE - 1);
+		// the remainders have the sign of value, which also works for Long.MIN_VALUE
+		for (int i = 0; value != 0; ++i) {
+			mData[i] += value % BASE;
+			value /= BASE;
+		}
+	}
+
+	// add the slots of another accumulator
+	void add(LimbAccumulator other) {
+		if (other.mLoad > CAPACITY - BASE) {
+			other.propagate();
+		}
+		reserve(other.mSize, other.mLoad);
+		long[] data = mData;
+		for (int i = 0; i < other.mSize; ++i) {
+			data[i] += other.mData[i];
+		}
+	}
+
+	// add or subtract the product of the magnitudes of x and y, one row per limb of the shorter operand
+	void addProduct(DecimalInt x, DecimalInt y, boolean subtract) {
+		if (x.getLimbCount() > y.getLimbCount()) {
+			DecimalInt t = x;
+			x = y;
+			y = t;
+		}
+		int[] xLimbs = x.getLimbData();
+		int xSize = x.getLimbCount();
+		int[] yLimbs = y.getLimbData();
+		int ySize = y.getLimbCount();
+		if (xSize == 0)
+			return;
+
+		for (int i = 0; i < xSize; ++i) {
+			long word = xLimbs[i];
+			if (word == 0)
+				continue;
+			reserve(i + ySize, PRODUCT);
+			if (subtract)
+				word = -word;
+			long[] data = mData;
+			for (int j = 0; j < ySize; ++j) {
+				data[i + j] += word * yLimbs[j];
+			}
+		}
+	}
+
+	// make room for slots [0, size) and for adding a magnitude of at most load to each of them
+	private void reserve(int size, long load) {
+		if (size > mData.length) {
+			mData = Arrays.copyOf(mData, Math.max(size, 2 * mData.length));
+		}
+		mSize = Math.max(mSize, size);
+		if (mLoad > CAPACITY - load) {
+			propagate();
+		}
+		mLoad += load;
+	}
+
+	// bring every slot below BASE in magnitude, only the slots above the last one can be negative
+	private void propagate() {
+		long carry = 0;
+		for (int i = 0; i < mSize; ++i) {
+			long sum = mData[i] + carry;
+			carry = Math.floorDiv(sum, BASE);
+			mData[i] = sum - carry * BASE;
+		}
+		while (carry != 0) {
+			if (mSize == mData.length) {
+				mData = Arrays.copyOf(mData, 2 * mData.length);
+			}
+			mData[mSize++] = carry % BASE;
+			carry /= BASE;
+		}
+		mLoad = BASE;
+	}
+
+	// return the sum, which leaves the slots as they are
+	DecimalInt toDecimalInt() {
+		// with floored carries all slots end up in [0, BASE), a negative sum leaves a negative carry
+		long carry = 0;
+		int[] limbs = new int[mSize + 3];
+		for (int i = 0; i < mSize; ++i) {
+			long sum = mData[i] + carry;
+			carry = Math.floorDiv(sum, BASE);
+			limbs[i] = (int)(sum - carry * BASE);
+		}
+		int size = mSize;
+		boolean negative = carry < 0;
+		if (negative) {
+			// the sum is limbs - |carry|*BASE^size, its magnitude is (|carry| - 1)*BASE^size + (BASE^size - limbs)
+			carry = -carry;
+			int i = 0;
+			while (i < size && limbs[i] == 0) {
+				++i;
+			}
+			if (i == size) {
+				++carry;
+			}
+			else {
+				limbs[i] = (int)(BASE - limbs[i]);
+				for (++i; i < size; ++i) {
+					limbs[i] = (int)(BASE - 1 - limbs[i]);
+				}
+			}
+			--carry;
+		}
+		while (carry != 0) {
+			limbs[size++] = (int)(carry % BASE);
+			carry /= BASE;
+		}
+		return DecimalInt.fromLimbs(limbs, size, negative);
+	}
+}
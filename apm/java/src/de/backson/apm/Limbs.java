@@ -0,0 +1,319 @@
+package de.backson.apm;
+
+import java.util.Arrays;
+
+// kernels on the magnitudes of limb arrays in base 10^9, least significant limb first
+// the destination may be the same array as one of the operands, since every limb is read before it is written
+final class Limbs {
+
+	private static final int BASE = DecimalInt.BASE;
+
+	// the number of limbs that compare checks for equality at once
+	private static final int COMPARE_BLOCK = 32;
+
+	// the number of rows of a schoolbook product that can be added to a long before the carries must be propagated,
+	// every row adds less than BASE^2 to a slot that starts below BASE
+	private static final int CARRY_ROWS = 8;
+
+	// the largest divisor for which a remainder times BASE plus a limb still fits into a long
+	static final long MAX_SMALL_DIVISOR = Long.MAX_VALUE / BASE;
+
+	// the numbers 00 to 99 as pairs of ASCII digits
+	private static final byte[] DIGIT_PAIRS = new byte[200];
+
+	static {
+		for (int i = 0; i < 100; ++i) {
+			DIGIT_PAIRS[2 * i] = (byte)('0' + i / 10);
+			DIGIT_PAIRS[2 * i + 1] = (byte)('0' + i % 10);
+		}
+	}
+
+	private Limbs() {
+	}
+
+	// compare the magnitudes a[0, aSize) and b[0, bSize), both without leading zero limbs
+	static int compare(int[] a, int aSize, int[] b, int bSize) {
+		// check if either number has more words
+		if (aSize < bSize)
+			return -1;
+		if (aSize > bSize)
+			return 1;
+
+		// short numbers usually differ in their top limbs
+		if (aSize < COMPARE_BLOCK) {
+			for (int i = aSize - 1; i >= 0; --i) {
+				if (a[i] != b[i])
+					return a[i] < b[i] ? -1 : 1;
+			}
+			return 0;
+		}
+
+		// skip equal blocks from the top with the vectorized array comparison of the JDK,
+		// then find the highest difference inside the first block that is not equal
+		for (int end = aSize; end > 0; end -= COMPARE_BLOCK) {
+			int start = Math.max(end - COMPARE_BLOCK, 0);
+			if (Arrays.equals(a, start, end, b, start, end))
+				continue;
+			for (int i = end - 1; ; --i) {
+				if (a[i] != b[i])
+					return a[i] < b[i] ? -1 : 1;
+			}
+		}
+
+		// if we reach this point, then both values are equal
+		return 0;
+	}
+
+	// dst = a + b, requires aSize >= bSize and room for aSize+1 limbs in dst
+	// returns the size of the sum
+	static int add(int[] a, int aSize, int[] b, int bSize, int[] dst) {
+		int carry = addWithCarry(a, b, bSize, 0, dst);
+		int i = bSize;
+		// propagate the carry through the rest of a
+		for (; i < aSize && carry != 0; ++i) {
+			int word = a[i] + 1;
+			if (word == BASE) {
+				word = 0;
+			}
+			else {
+				carry = 0;
+			}
+			dst[i] = word;
+		}
+		if (carry != 0) {
+			dst[aSize] = carry;
+			return aSize + 1;
+		}
+		// once the carry is gone, the remaining limbs are unchanged
+		if (dst != a && i < aSize) {
+			System.arraycopy(a, i, dst, i, aSize - i);
+		}
+		return aSize;
+	}
+
+	// dst = a - b, requires a >= b and room for aSize limbs in dst
+	// returns the size of the difference without leading zero limbs
+	static int subtract(int[] a, int aSize, int[] b, int bSize, int[] dst) {
+		int borrow = subtractWithBorrow(a, b, bSize, 0, dst);
+		int i = bSize;
+		// propagate the borrow through the rest of a
+		for (; i < aSize && borrow != 0; ++i) {
+			int word = a[i] - 1;
+			if (word < 0) {
+				word += BASE;
+			}
+			else {
+				borrow = 0;
+			}
+			dst[i] = word;
+		}
+		if (dst != a && i < aSize) {
+			System.arraycopy(a, i, dst, i, aSize - i);
+		}
+		return normalize(dst, aSize);
+	}
+
+	// dst[0, n) = a[0, n) + b[0, n) + carry for a carry of 0 or 1, returns the carry out of the top limb
+	static int addWithCarry(int[] a, int[] b, int n, int carry, int[] dst) {
+		// two limbs and a carry still fit into an int, the carry is computed from the sign bit without a branch,
+		// which random limbs would mispredict half of the time
+		for (int i = 0; i < n; ++i) {
+			int word = a[i] + b[i] + carry;
+			carry = (BASE - 1 - word) >>> 31;
+			dst[i] = word - (BASE & -carry);
+		}
+		return carry;
+	}
+
+	// dst[0, n) = a[0, n) - b[0, n) - borrow for a borrow of 0 or 1, returns the borrow out of the top limb
+	static int subtractWithBorrow(int[] a, int[] b, int n, int borrow, int[] dst) {
+		for (int i = 0; i < n; ++i) {
+			int word = a[i] - b[i] - borrow;
+			borrow = word >>> 31;
+			dst[i] = word + (BASE & -borrow);
+		}
+		return borrow;
+	}
+
+	// dst = a * factor, requires 0 <= factor and room for aSize+2 limbs in dst
+	// returns the size of the product without leading zero limbs
+	static int multiplyByLimb(int[] a, int aSize, int factor, int[] dst) {
+		// a limb times a factor below 2^31 plus the carry still fits into a long
+		long carry = 0;
+		for (int i = 0; i < aSize; ++i) {
+			long product = (long)a[i] * factor + carry;
+			dst[i] = (int)(product % BASE);
+			carry = product / BASE;
+		}
+		int size = aSize;
+		while (carry != 0) {
+			dst[size++] = (int)(carry % BASE);
+			carry /= BASE;
+		}
+		return normalize(dst, size);
+	}
+
+	// dst = a * b, requires room for aSize+bSize limbs in dst, which must be neither a nor b
+	// returns the size of the product without leading zero limbs
+	// every row of the product is added to wide limbs without any division, which the JIT can vectorize,
+	// and the carries of a whole batch of rows are propagated at once
+	static int multiply(int[] a, int aSize, int[] b, int bSize, int[] dst) {
+		// rows for the limbs of the shorter operand, each row runs over the longer one
+		if (aSize > bSize) {
+			int[] t = a;
+			a = b;
+			b = t;
+			int n = aSize;
+			aSize = bSize;
+			bSize = n;
+		}
+		int size = aSize + bSize;
+		if (aSize < CARRY_ROWS) {
+			// too few rows to make up for the wide limbs, every row propagates its own carries
+			Arrays.fill(dst, 0, size, 0);
+			for (int i = 0; i < aSize; ++i) {
+				long word = a[i];
+				long carry = 0;
+				for (int j = 0; j < bSize; ++j) {
+					long sum = word * b[j] + dst[i + j] + carry;
+					dst[i + j] = (int)(sum % BASE);
+					carry = sum / BASE;
+				}
+				dst[i + bSize] = (int)carry;
+			}
+			return normalize(dst, size);
+		}
+
+		long[] wide = new long[size];
+		int from = 0;
+		for (int i = 0; i < aSize; ++i) {
+			long word = a[i];
+			for (int j = 0; j < bSize; ++j) {
+				wide[i + j] += word * b[j];
+			}
+			if (i - from + 1 == CARRY_ROWS || i == aSize - 1) {
+				propagate(wide, from, i + bSize + 1, i == aSize - 1 ? size : i + 1, dst);
+				from = i + 1;
+			}
+		}
+		return normalize(dst, size);
+	}
+
+	// dst = a * a, requires room for 2*size limbs in dst, which must not be a
+	// returns the size of the square without leading zero limbs
+	// the cross products a[i]*a[j] with i < j are computed once in wide limbs like in multiply and then doubled
+	static int square(int[] a, int size, int[] dst) {
+		if (size < CARRY_ROWS)
+			return multiply(a, size, a, size, dst);
+		long[] wide = new long[2 * size];
+		int from = 0;
+		for (int i = 0; i < size; ++i) {
+			long word = a[i];
+			for (int j = i + 1; j < size; ++j) {
+				wide[i + j] += word * a[j];
+			}
+			if (i - from + 1 == CARRY_ROWS || i == size - 1) {
+				propagate(wide, 2 * from, i + size + 1, 2 * i + 2, null);
+				from = i + 1;
+			}
+		}
+
+		// double the cross products and add the squares on the diagonal, all slots are below BASE by now
+		long carry = 0;
+		for (int i = 0; i < size; ++i) {
+			long square = (long)a[i] * a[i];
+			long low = 2 * wide[2 * i] + square % BASE + carry;
+			dst[2 * i] = (int)(low % BASE);
+			carry = low / BASE;
+			long high = 2 * wide[2 * i + 1] + square / BASE + carry;
+			dst[2 * i + 1] = (int)(high % BASE);
+			carry = high / BASE;
+		}
+		return normalize(dst, 2 * size);
+	}
+
+	// propagate the carries of the nonnegative wide limbs [from, to) upwards into the slots above,
+	// the limbs below done are final and are also stored in dst, unless dst is null
+	private static void propagate(long[] wide, int from, int to, int done, int[] dst) {
+		long carry = 0;
+		int i = from;
+		for (; i < to || carry != 0 && i < wide.length; ++i) {
+			long sum = wide[i] + carry;
+			carry = sum / BASE;
+			wide[i] = sum - carry * BASE;
+		}
+		if (dst != null) {
+			for (int j = from; j < done; ++j) {
+				dst[j] = (int)wide[j];
+			}
+		}
+	}
+
+	// dst = a / divisor, requires 0 < divisor <= MAX_SMALL_DIVISOR and room for aSize limbs in dst
+	// dst may be null if only the remainder is needed, which is returned
+	static long divideBySmall(int[] a, int aSize, long divisor, int[] dst) {
+		long remainder = 0;
+		for (int i = aSize - 1; i >= 0; --i) {
+			long word = remainder * BASE + a[i];
+			if (dst != null)
+				dst[i] = (int)(word / divisor);
+			remainder = word % divisor;
+		}
+		return remainder;
+	}
+
+	// return the size of a[0, size) without leading zero limbs
+	static int normalize(int[] a, int size) {
+		while (size > 0 && a[size - 1] == 0) {
+			--size;
+		}
+		return size;
+	}
+
+	// write the nine digits of a limb to dst[pos, pos+9), two digits per step
+	static void format(int word, byte[] dst, int pos) {
+		for (int j = pos + 7; j > pos; j -= 2) {
+			int pair = 2 * (word % 100);
+			word /= 100;
+			dst[j] = DIGIT_PAIRS[pair];
+			dst[j + 1] = DIGIT_PAIRS[pair + 1];
+		}
+		dst[pos] = (byte)('0' + word);
+	}
+
+	static void format(int word, char[] dst, int pos) {
+		for (int j = pos + 7; j > pos; j -= 2) {
+			int pair = 2 * (word % 100);
+			word /= 100;
+			dst[j] = (char)DIGIT_PAIRS[pair];
+			dst[j + 1] = (char)DIGIT_PAIRS[pair + 1];
+		}
+		dst[pos] = (char)('0' + word);
+	}
+
+	// write the digits of a positive limb without leading zeros, so that the last one is at dst[end-1]
+	// returns the position of the first digit
+	static int formatLeading(int word, byte[] dst, int end) {
+		while (word >= 10) {
+			int pair = 2 * (word % 100);
+			word /= 100;
+			dst[--end] = DIGIT_PAIRS[pair + 1];
+			dst[--end] = DIGIT_PAIRS[pair];
+		}
+		if (word != 0)
+			dst[--end] = (byte)('0' + word);
+		return end;
+	}
+
+	static int formatLeading(int word, char[] dst, int end) {
+		while (word >= 10) {
+			int pair = 2 * (word % 100);
+			word /= 100;
+			dst[--end] = (char)DIGIT_PAIRS[pair + 1];
+			dst[--end] = (char)DIGIT_PAIRS[pair];
+		}
+		if (word != 0)
+			dst[--end] = (char)('0' + word);
+		return end;
+	}
+}
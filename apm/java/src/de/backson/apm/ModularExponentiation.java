@@ -0,0 +1,216 @@
+package de.backson.apm;
+
+import java.util.Arrays;
+
+// modular exponentiation with a sliding window over the binary digits of the exponent
+// moduli that are coprime to the base 10^9 use Montgomery multiplication in that base, which needs no division at all,
+// all other moduli and very large ones reduce every product with the division of DecimalInt
+final class ModularExponentiation {
+
+	private static final int BASE = DecimalInt.BASE;
+
+	// the exponent is split into words of this many bits
+	private static final int WORD_BITS = 30;
+
+	// Montgomery multiplication is quadratic, beyond this size in limbs the fast multiplication and division win
+	private static final int MONTGOMERY_LIMIT = 1000;
+
+	// the largest exponent bit lengths for window sizes 1, 2, 3, ..., like in BigInteger
+	private static final int[] WINDOW_LIMITS = {7, 25, 81, 241, 673, 1793, Integer.MAX_VALUE};
+
+	private ModularExponentiation() {
+	}
+
+	// a representation of the residues modulo a fixed modulus
+	private abstract static class Reduction {
+		// return the representation of 0 <= x < modulus
+		abstract DecimalInt convert(DecimalInt x);
+
+		// return the residue that a representation stands for
+		abstract DecimalInt revert(DecimalInt x);
+
+		// return the representation of the product of two represented residues
+		abstract DecimalInt multiply(DecimalInt a, DecimalInt b);
+
+		DecimalInt square(DecimalInt a) {
+			return multiply(a, a);
+		}
+	}
+
+	// residues as themselves, every product is reduced with a division
+	private static final class Division extends Reduction {
+		private final DecimalInt mModulus;
+
+		Division(DecimalInt modulus) {
+			mModulus = modulus;
+		}
+
+		@Override
+		DecimalInt convert(DecimalInt x) {
+			return x;
+		}
+
+		@Override
+		DecimalInt revert(DecimalInt x) {
+			return x;
+		}
+
+		@Override
+		DecimalInt multiply(DecimalInt a, DecimalInt b) {
+			return DecimalInt.divide(DecimalInt.multiply(a, b), mModulus)[1];
+		}
+
+		@Override
+		DecimalInt square(DecimalInt a) {
+			return DecimalInt.divide(DecimalInt.square(a), mModulus)[1];
+		}
+	}
+
+	// residues x in Montgomery form x*R mod m with R = BASE^n for a modulus m of n limbs that is coprime to BASE
+	private static final class Montgomery extends Reduction {
+		private final int[] mModulus;
+		private final int mSize;
+		// -m^-1 mod BASE
+		private final long mInverse;
+		// R^2 mod m
+		private final DecimalInt mR2;
+
+		Montgomery(DecimalInt modulus) {
+			mSize = modulus.getLimbCount();
+			mModulus = modulus.getLimbData();
+
+			// the inverse modulo 10 is looked up, then every newton step doubles the number of correct digits
+			long m0 = mModulus[0];
+			long inverse = new int[]{0, 1, 0, 7, 0, 0, 0, 3, 0, 9}[(int)(m0 % 10)];
+			for (int digits = 1; digits < DecimalInt.BASE_DIGITS; digits *= 2) {
+				long product = m0 * inverse % BASE;
+				inverse = inverse * ((2 - product + BASE) % BASE) % BASE;
+			}
+			mInverse = (BASE - inverse) % BASE;
+
+			DecimalInt r2 = DecimalInt.getPowerOfTen(2 * mSize * DecimalInt.BASE_DIGITS);
+			mR2 = DecimalInt.divide(r2, modulus)[1];
+		}
+
+		@Override
+		DecimalInt convert(DecimalInt x) {
+			return multiply(x, mR2);
+		}
+
+		@Override
+		DecimalInt revert(DecimalInt x) {
+			return multiply(x, DecimalInt.valueOf(1));
+		}
+
+		// return a*b/R mod m for a, b < m, interleaving the multiplication with the reduction limb by limb
+		@Override
+		DecimalInt multiply(DecimalInt a, DecimalInt b) {
+			int n = mSize;
+			int[] m = mModulus;
+			int[] x = a.getLimbData();
+			int xSize = a.getLimbCount();
+			int[] y = b.getLimbData();
+			int ySize = b.getLimbCount();
+			int[] t = new int[n + 1];
+
+			for (int i = 0; i < n; ++i) {
+				long xi = i < xSize ? x[i] : 0;
+				// choose u so that t + xi*y + u*m is divisible by BASE, then divide by BASE while adding
+				long sum = t[0] + xi * (ySize > 0 ? y[0] : 0);
+				long u = sum % BASE * mInverse % BASE;
+				long carry = (sum + u * m[0]) / BASE;
+				for (int j = 1; j < n; ++j) {
+					// two products of limbs plus a limb and the carry still fit into a long
+					sum = t[j] + xi * (j < ySize ? y[j] : 0) + u * m[j] + carry;
+					t[j - 1] = (int)(sum % BASE);
+					carry = sum / BASE;
+				}
+				sum = t[n] + carry;
+				t[n - 1] = (int)(sum % BASE);
+				t[n] = (int)(sum / BASE);
+			}
+
+			// the result is below 2m, so at most one subtraction is necessary
+			int size = Limbs.normalize(t, n + 1);
+			if (Limbs.compare(t, size, m, n) >= 0) {
+				size = Limbs.subtract(t, size, m, n, t);
+			}
+			return DecimalInt.fromLimbs(t, size, false);
+		}
+	}
+
+	// return base^exponent mod modulus for 0 <= base < modulus and exponent >= 0
+	static DecimalInt modPow(DecimalInt base, DecimalInt exponent, DecimalInt modulus) {
+		if (modulus.getLimbCount() == 1 && modulus.getLimbData()[0] == 1)
+			return DecimalInt.valueOf(0);
+		if (exponent.getSign() == 0)
+			return DecimalInt.valueOf(1);
+
+		int[] bits = toBinary(exponent);
+		int bitLength = (bits.length - 1) * WORD_BITS + 32 - Integer.numberOfLeadingZeros(bits[bits.length - 1]);
+
+		// the modulus is coprime to BASE if its last digit is coprime to 10
+		int lastDigit = modulus.getLimbData()[0] % 10;
+		boolean coprime = lastDigit == 1 || lastDigit == 3 || lastDigit == 7 || lastDigit == 9;
+		Reduction reduction = coprime && modulus.getLimbCount() <= MONTGOMERY_LIMIT
+				? new Montgomery(modulus) : new Division(modulus);
+
+		// the odd powers base^1, base^3, ..., base^(2^window-1)
+		int window = 1;
+		while (bitLength > WINDOW_LIMITS[window - 1]) {
+			++window;
+		}
+		DecimalInt[] powers = new DecimalInt[1 << (window - 1)];
+		powers[0] = reduction.convert(base);
+		if (powers.length > 1) {
+			DecimalInt square = reduction.square(powers[0]);
+			for (int i = 1; i < powers.length; ++i) {
+				powers[i] = reduction.multiply(powers[i - 1], square);
+			}
+		}
+
+		// scan the exponent from the most significant bit, every window starts and ends with a one bit
+		DecimalInt result = null;
+		int i = bitLength - 1;
+		while (i >= 0) {
+			if (!testBit(bits, i)) {
+				result = reduction.square(result);
+				--i;
+				continue;
+			}
+			int j = Math.max(i - window + 1, 0);
+			while (!testBit(bits, j)) {
+				++j;
+			}
+			int value = 0;
+			for (int k = i; k >= j; --k) {
+				value = 2 * value + (testBit(bits, k) ? 1 : 0);
+				if (result != null)
+					result = reduction.square(result);
+			}
+			DecimalInt power = powers[value >>> 1];
+			result = result == null ? power : reduction.multiply(result, power);
+			i = j - 1;
+		}
+		return reduction.revert(result);
+	}
+
+	// return the magnitude in base 2^WORD_BITS, least significant word first
+	private static int[] toBinary(DecimalInt value) {
+		int size = value.getLimbCount();
+		int[] data = new int[size];
+		System.arraycopy(value.getLimbData(), 0, data, 0, size);
+		// every limb has fewer than 30 bits, so there are at most as many words as limbs
+		int[] words = new int[size];
+		int count = 0;
+		while (size > 0) {
+			words[count++] = (int)Limbs.divideBySmall(data, size, 1 << WORD_BITS, data);
+			size = Limbs.normalize(data, size);
+		}
+		return Arrays.copyOf(words, count);
+	}
+
+	private static boolean testBit(int[] words, int bit) {
+		return (words[bit / WORD_BITS] >>> (bit % WORD_BITS) & 1) != 0;
+	}
+}
@@ -0,0 +1,200 @@
+package de.backson.apm;
+
+import java.util.Arrays;
+
+// mutable companion of DecimalInt for accumulating results in place
+// the data array only grows when needed, so repeated operations reuse the same memory
+public class MutableDecimalInt {
+
+	// limbs in base 10^9, least significant limb first
+	private int[] mData;
+	// number of limbs in use
+	private int mSize;
+	private boolean mNegative;
+
+	// initialize to zero
+	public MutableDecimalInt() {
+		mData = null;
+		mSize = 0;
+		mNegative = false;
+	}
+
+	// initialize to the value of an immutable number
+	public MutableDecimalInt(DecimalInt value) {
+		this();
+		set(value);
+	}
+
+	// allocate enough memory for at least 'size' limbs
+	private void grow(int size) {
+		if (size < 0)
+			throw new IllegalArgumentException("Negative size");
+
+		if (mData == null) {
+			mData = new int[size];
+		}
+		else if (size > mData.length) {
+			// grow geometrically, so that a running sum does not reallocate on every new limb
+			mData = Arrays.copyOf(mData, Math.max(size, mData.length + mData.length / 2));
+		}
+	}
+
+	// shrink the array to the smallest size possible
+	public void shrink() {
+		if (mData != null && mData.length > mSize) {
+			mData = Arrays.copyOf(mData, mSize);
+		}
+	}
+
+	// set to zero, but keep the allocated memory
+	public void reset() {
+		mSize = 0;
+		mNegative = false;
+	}
+
+	// set to the value of an immutable number
+	public void set(DecimalInt value) {
+		int size = value.getLimbCount();
+		grow(size);
+		if (size > 0) {
+			System.arraycopy(value.getLimbData(), 0, mData, 0, size);
+		}
+		mSize = size;
+		mNegative = value.getSign() < 0;
+	}
+
+	// return size, i.e. the number of decimal digits
+	public int getSize() {
+		if (mSize == 0)
+			return 0;
+		return (mSize - 1) * DecimalInt.BASE_DIGITS + DecimalInt.digitCount(mData[mSize - 1]);
+	}
+
+	// return true if negative, false otherwise
+	public boolean isNegative() {
+		return mNegative;
+	}
+
+	// return -1 if negative, +1 if positive and 0 otherwise
+	public int getSign() {
+		if (mSize == 0)
+			return 0;
+		else if (mNegative)
+			return -1;
+		else
+			return +1;
+	}
+
+	// this += rhs
+	public void addInPlace(DecimalInt rhs) {
+		addHelper(rhs, rhs.getSign() < 0);
+	}
+
+	// this -= rhs
+	public void subtractInPlace(DecimalInt rhs) {
+		addHelper(rhs, rhs.getSign() > 0);
+	}
+
+	// helper function for addition and subtraction, rhsNegative is the sign rhs is added with
+	private void addHelper(DecimalInt rhs, boolean rhsNegative) {
+		int[] rhsData = rhs.getLimbData();
+		int rhsSize = rhs.getLimbCount();
+
+		// check if one of the two values is zero
+		if (rhsSize == 0) {
+			return;
+		}
+		if (mSize == 0) {
+			set(rhs);
+			mNegative = rhsNegative;
+			return;
+		}
+
+		grow(Math.max(mSize, rhsSize) + 1);
+		if (mNegative == rhsNegative) {
+			// add the words (ignore sign), the sign stays the same
+			if (mSize >= rhsSize)
+				mSize = Limbs.add(mData, mSize, rhsData, rhsSize, mData);
+			else
+				mSize = Limbs.add(rhsData, rhsSize, mData, mSize, mData);
+		}
+		else {
+			// subtract the smaller magnitude from the larger one
+			int cmp = Limbs.compare(mData, mSize, rhsData, rhsSize);
+			if (cmp > 0) {
+				mSize = Limbs.subtract(mData, mSize, rhsData, rhsSize, mData);
+			}
+			else if (cmp < 0) {
+				mSize = Limbs.subtract(rhsData, rhsSize, mData, mSize, mData);
+				mNegative = rhsNegative;
+			}
+			else {
+				reset();
+			}
+		}
+	}
+
+	// this *= factor
+	public void multiplyBySmall(int factor) {
+		if (mSize == 0) {
+			return;
+		}
+		if (factor == 0) {
+			reset();
+			return;
+		}
+		if (factor < 0) {
+			mNegative = !mNegative;
+		}
+		// the magnitude of Integer.MIN_VALUE does not fit into an int, so split it into two factors
+		if (factor == Integer.MIN_VALUE) {
+			multiplyMagnitude(1 << 16);
+			multiplyMagnitude(1 << 15);
+		}
+		else {
+			multiplyMagnitude(Math.abs(factor));
+		}
+	}
+
+	// multiply the magnitude by a nonnegative factor
+	private void multiplyMagnitude(int factor) {
+		grow(mSize + 2);
+		mSize = Limbs.multiplyByLimb(mData, mSize, factor, mData);
+	}
+
+	// this *= 10^digits
+	public void shiftLeftDecimal(int digits) {
+		if (digits < 0)
+			throw new IllegalArgumentException("Negative shift " + digits + " is not allowed.");
+		if (mSize == 0) {
+			return;
+		}
+
+		// whole limbs are moved, the remaining digits are a multiplication by a single limb
+		int limbs = digits / DecimalInt.BASE_DIGITS;
+		grow(mSize + limbs + 2);
+		if (limbs > 0) {
+			System.arraycopy(mData, 0, mData, limbs, mSize);
+			Arrays.fill(mData, 0, limbs, 0);
+			mSize += limbs;
+		}
+		int factor = 1;
+		for (int i = 0; i < digits % DecimalInt.BASE_DIGITS; ++i) {
+			factor *= 10;
+		}
+		if (factor > 1) {
+			multiplyMagnitude(factor);
+		}
+	}
+
+	// create an immutable copy of the current value
+	public DecimalInt toDecimalInt() {
+		int[] data = mSize > 0 ? Arrays.copyOf(mData, mSize) : null;
+		return DecimalInt.fromLimbs(data, mSize, mNegative);
+	}
+
+	@Override
+	public String toString() {
+		return DecimalInt.fromLimbs(mData, mSize, mNegative).toString();
+	}
+}
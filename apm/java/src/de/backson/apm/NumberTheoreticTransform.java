@@ -0,0 +1,276 @@
+package de.backson.apm;
+
+// multiplication of limb arrays in base 10^9 with a number theoretic transform
+// the convolution of the limbs is computed modulo three primes of the form c*2^k+1 and
+// recombined with the chinese remainder theorem, which is exact for every supported length
+final class NumberTheoreticTransform {
+
+	private static final int BASE = DecimalInt.BASE;
+
+	// the transform length has to divide p-1 for all three primes
+	static final int MAX_LENGTH = 1 << 25;
+
+	// the smallest block a parallel transform splits off into a task of its own
+	private static final int PARALLEL_BLOCK = 1 << 14;
+
+	private static final Prime P0 = new Prime(2013265921, 31);
+	private static final Prime P1 = new Prime(1811939329, 13);
+	private static final Prime P2 = new Prime(2113929217, 5);
+
+	// constants for the recombination of the three residues
+	private static final long P0_INV_P1 = P1.pow(P0.p % P1.p, P1.p - 2);
+	private static final long P0_INV_P2 = P2.pow(P0.p % P2.p, P2.p - 2);
+	private static final long P1_INV_P2 = P2.pow(P1.p % P2.p, P2.p - 2);
+
+	private NumberTheoreticTransform() {
+	}
+
+	// modular arithmetic for a prime below 2^31 in Montgomery form with R = 2^32
+	private static final class Prime {
+		final int p;
+		final int generator;
+		// -p^-1 mod 2^32
+		final int negInverse;
+		// R^2 mod p
+		final long r2;
+
+		Prime(int p, int generator) {
+			this.p = p;
+			this.generator = generator;
+			// every odd number is its own inverse modulo 8, each newton step doubles the correct bits
+			int inverse = p;
+			for (int i = 0; i < 4; ++i) {
+				inverse *= 2 - p * inverse;
+			}
+			negInverse = -inverse;
+			long r = (1L << 32) % p;
+			r2 = r * r % p;
+		}
+
+		// return a*b/R mod p, for a, b < p
+		int mul(int a, int b) {
+			long t = (long)a * b;
+			long m = (((int)t) * negInverse) & 0xFFFFFFFFL;
+			// the sum is below 2^64, so the unsigned shift gives the correct result
+			long u = (t + m * p) >>> 32;
+			return (int)(u >= p ? u - p : u);
+		}
+
+		int add(int a, int b) {
+			long sum = (long)a + b;
+			return (int)(sum >= p ? sum - p : sum);
+		}
+
+		int sub(int a, int b) {
+			int difference = a - b;
+			return difference < 0 ? difference + p : difference;
+		}
+
+		// return base^exponent mod p without Montgomery form
+		long pow(long base, long exponent) {
+			long result = 1;
+			base %= p;
+			while (exponent > 0) {
+				if ((exponent & 1) != 0)
+					result = result * base % p;
+				base = base * base % p;
+				exponent >>= 1;
+			}
+			return result;
+		}
+
+		// return the powers w^0 .. w^(length/2-1) of a primitive length-th root w in Montgomery form
+		int[] roots(int length, boolean inverse) {
+			long w = pow(generator, (p - 1) / length);
+			if (inverse)
+				w = pow(w, p - 2);
+			int[] roots = new int[Math.max(1, length / 2)];
+			int wm = mul((int)w, (int)r2);
+			roots[0] = mul(1, (int)r2);
+			for (int j = 1; j < roots.length; ++j) {
+				roots[j] = mul(roots[j - 1], wm);
+			}
+			return roots;
+		}
+
+		// decimation in frequency on a[offset, offset+length), the output is in bit reversed order
+		// the roots for this length are roots[j*step]
+		void forward(int[] a, int offset, int length, int[] roots, int step, boolean parallel) {
+			if (parallel && length > PARALLEL_BLOCK) {
+				// the butterflies of the first level are split into chunks, then both halves are independent
+				int half = length / 2;
+				butterflies(half, (from, to) -> {
+					for (int j = from; j < to; ++j) {
+						int u = a[offset + j];
+						int v = a[offset + j + half];
+						a[offset + j] = add(u, v);
+						a[offset + j + half] = mul(sub(u, v), roots[j * step]);
+					}
+				});
+				DecimalInt.invokeAll(
+						() -> forward(a, offset, half, roots, 2 * step, true),
+						() -> forward(a, offset + half, half, roots, 2 * step, true));
+				return;
+			}
+			for (int len = length; len >= 2; len >>= 1) {
+				int half = len / 2;
+				int lenStep = step * (length / len);
+				for (int start = offset; start < offset + length; start += len) {
+					for (int j = 0; j < half; ++j) {
+						int u = a[start + j];
+						int v = a[start + j + half];
+						a[start + j] = add(u, v);
+						a[start + j + half] = mul(sub(u, v), roots[j * lenStep]);
+					}
+				}
+			}
+		}
+
+		// decimation in time on a[offset, offset+length), the input is in bit reversed order
+		// the roots for this length are roots[j*step]
+		void inverse(int[] a, int offset, int length, int[] roots, int step, boolean parallel) {
+			if (parallel && length > PARALLEL_BLOCK) {
+				// both halves are independent, then the butterflies of the last level are split into chunks
+				int half = length / 2;
+				DecimalInt.invokeAll(
+						() -> inverse(a, offset, half, roots, 2 * step, true),
+						() -> inverse(a, offset + half, half, roots, 2 * step, true));
+				butterflies(half, (from, to) -> {
+					for (int j = from; j < to; ++j) {
+						int u = a[offset + j];
+						int v = mul(a[offset + j + half], roots[j * step]);
+						a[offset + j] = add(u, v);
+						a[offset + j + half] = sub(u, v);
+					}
+				});
+				return;
+			}
+			for (int len = 2; len <= length; len <<= 1) {
+				int half = len / 2;
+				int lenStep = step * (length / len);
+				for (int start = offset; start < offset + length; start += len) {
+					for (int j = 0; j < half; ++j) {
+						int u = a[start + j];
+						int v = mul(a[start + j + half], roots[j * lenStep]);
+						a[start + j] = add(u, v);
+						a[start + j + half] = sub(u, v);
+					}
+				}
+			}
+		}
+
+		// return the cyclic convolution of a and b modulo p
+		// a and b must have the same power of two length and are overwritten
+		int[] convolve(int[] a, int[] b, boolean parallel) {
+			int length = a.length;
+			int[] roots = roots(length, false);
+			forward(a, 0, length, roots, 1, parallel);
+			if (b != a)
+				forward(b, 0, length, roots, 1, parallel);
+			// the pointwise products carry a factor 1/R, the inverse transform a factor n,
+			// scaling with R^2/n in Montgomery form fixes both
+			for (int i = 0; i < length; ++i) {
+				a[i] = mul(a[i], b[i]);
+			}
+			inverse(a, 0, length, roots(length, true), 1, parallel);
+			int scale = (int)(r2 * pow(length, p - 2) % p);
+			for (int i = 0; i < length; ++i) {
+				a[i] = mul(a[i], scale);
+			}
+			return a;
+		}
+	}
+
+	// a range of butterflies of one level of a transform
+	private interface ButterflyRange {
+		void run(int from, int to);
+	}
+
+	// run the butterflies [0, count) in parallel chunks of PARALLEL_BLOCK
+	private static void butterflies(int count, ButterflyRange range) {
+		int chunks = (count + PARALLEL_BLOCK - 1) / PARALLEL_BLOCK;
+		Runnable[] tasks = new Runnable[chunks];
+		for (int i = 0; i < chunks; ++i) {
+			int from = i * PARALLEL_BLOCK;
+			int to = Math.min(count, from + PARALLEL_BLOCK);
+			tasks[i] = () -> range.run(from, to);
+		}
+		DecimalInt.invokeAll(tasks);
+	}
+
+	// return true if a product with 'size' limbs can be computed with a transform
+	static boolean supports(int size) {
+		return size <= MAX_LENGTH;
+	}
+
+	// multiply the limbs a[0, aSize) and b[0, bSize) and return the aSize+bSize limbs of the product
+	// if a and b are the same array with the same size, it is only transformed once
+	// in parallel mode the three primes and the blocks of each transform run in the fork/join pool
+	static int[] multiply(int[] a, int aSize, int[] b, int bSize, boolean parallel) {
+		int size = aSize + bSize;
+		if (!supports(size))
+			throw new IllegalArgumentException("Product of " + size + " limbs is too large for the transform.");
+
+		// the convolution has size-1 coefficients, which must not wrap around
+		int length = Integer.highestOneBit(Math.max(1, size - 2)) << 1;
+
+		boolean square = a == b && aSize == bSize;
+		int[][] residues = new int[3][];
+		Runnable[] tasks = {
+				() -> residues[0] = convolve(P0, a, aSize, b, bSize, length, square, parallel),
+				() -> residues[1] = convolve(P1, a, aSize, b, bSize, length, square, parallel),
+				() -> residues[2] = convolve(P2, a, aSize, b, bSize, length, square, parallel),
+		};
+		if (parallel) {
+			DecimalInt.invokeAll(tasks);
+		}
+		else {
+			for (Runnable task : tasks) {
+				task.run();
+			}
+		}
+		int[] r0 = residues[0];
+		int[] r1 = residues[1];
+		int[] r2 = residues[2];
+
+		// every coefficient is recombined into four limbs, the final pass propagates the carries
+		long[] accumulator = new long[size + 3];
+		for (int i = 0; i < size - 1; ++i) {
+			// Garner's algorithm: value = x0 + p0*(x1 + p1*x2)
+			long x0 = r0[i];
+			long x1 = (r1[i] - x0 % P1.p + P1.p) * P0_INV_P1 % P1.p;
+			long x2 = (r2[i] - x0 % P2.p + P2.p) * P0_INV_P2 % P2.p;
+			x2 = (x2 - x1 % P2.p + P2.p) * P1_INV_P2 % P2.p;
+			long inner = x1 + P1.p * x2;
+
+			long low = x0 + P0.p * (inner % BASE);
+			long high = P0.p * (inner / BASE) + low / BASE;
+			accumulator[i] += low % BASE;
+			accumulator[i + 1] += high % BASE;
+			accumulator[i + 2] += (high / BASE) % BASE;
+			accumulator[i + 3] += (high / BASE) / BASE;
+		}
+
+		int[] result = new int[size];
+		long carry = 0;
+		for (int i = 0; i < size; ++i) {
+			long sum = accumulator[i] + carry;
+			result[i] = (int)(sum % BASE);
+			carry = sum / BASE;
+		}
+		return result;
+	}
+
+	// copy the limbs into arrays of the transform length and convolve them modulo the prime
+	private static int[] convolve(Prime prime, int[] a, int aSize, int[] b, int bSize, int length, boolean square, boolean parallel) {
+		// all limbs are smaller than every prime, so they need no reduction
+		int[] fa = new int[length];
+		System.arraycopy(a, 0, fa, 0, aSize);
+		int[] fb = fa;
+		if (!square) {
+			fb = new int[length];
+			System.arraycopy(b, 0, fb, 0, bSize);
+		}
+		return prime.convolve(fa, fb, parallel);
+	}
+}
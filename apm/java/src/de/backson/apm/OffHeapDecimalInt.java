@@ -0,0 +1,229 @@
+package de.backson.apm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// an immutable number whose limbs live outside of the Java heap, either in a direct buffer or in a file
+// in the binary format of DecimalInt.toByteArray that is mapped into memory without copying
+// the arithmetic streams the limbs in chunks through the same kernels as DecimalInt, so no operation
+// needs more heap than a few chunks, products need a DecimalInt
+// closing makes every further use fail, the memory itself is released when the buffer is garbage collected,
+// since Java 12 has no API to free a direct or mapped buffer right away
+public final class OffHeapDecimalInt implements Closeable {
+
+	// the number of limbs that are moved to the heap at once
+	private static final int CHUNK_LIMBS = 1 << 12;
+
+	// the limbs as little endian ints from position 0, null once closed
+	private ByteBuffer mBytes;
+	// number of limbs in use
+	private final int mSize;
+	private final boolean mNegative;
+
+	private OffHeapDecimalInt(ByteBuffer bytes, int size, boolean negative) {
+		mBytes = bytes;
+		mSize = size;
+		mNegative = negative && size > 0;
+	}
+
+	// copy the limbs of a number into a direct buffer
+	public static OffHeapDecimalInt of(DecimalInt value) {
+		int size = value.getLimbCount();
+		ByteBuffer bytes = allocate(size);
+		// zero has no limb array
+		if (size > 0)
+			bytes.asIntBuffer().put(value.getLimbData(), 0, size);
+		return new OffHeapDecimalInt(bytes, size, value.isNegative());
+	}
+
+	// map a file that holds exactly one number in the binary format, the limbs are checked but not copied
+	public static OffHeapDecimalInt map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long length = channel.size();
+			if (length > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("File with " + length + " bytes is too large.");
+			ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+			BinaryFormat.Header header = BinaryFormat.readHeader(file);
+			if (file.remaining() != 4L * header.limbs)
+				throw new IllegalArgumentException((file.remaining() - 4L * header.limbs) + " bytes after the end of the number.");
+			OffHeapDecimalInt result = new OffHeapDecimalInt(file.slice().order(ByteOrder.LITTLE_ENDIAN), header.limbs, header.negative);
+
+			int[] chunk = new int[CHUNK_LIMBS];
+			for (int from = 0; from < result.mSize; from += CHUNK_LIMBS) {
+				int n = Math.min(CHUNK_LIMBS, result.mSize - from);
+				result.load(from, n, chunk);
+				BinaryFormat.checkLimbs(chunk, n, from);
+			}
+			BinaryFormat.checkHeader(header, result.mSize > 0 ? result.limbs().get(result.mSize - 1) : 0);
+			return result;
+		}
+	}
+
+	// return a copy on the heap
+	public DecimalInt toDecimalInt() {
+		int[] data = new int[mSize];
+		limbs().get(data);
+		return DecimalInt.fromLimbs(data, mSize, mNegative);
+	}
+
+	// write the number in the binary format, the limbs are written straight from their buffer
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(BinaryFormat.headerSize(mSize));
+		BinaryFormat.writeHeader(mSize, mNegative, header);
+		header.flip();
+		ByteBuffer limbs = bytes().duplicate();
+		limbs.clear().limit(4 * mSize);
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+		while (limbs.hasRemaining()) {
+			channel.write(limbs);
+		}
+	}
+
+	// drop the buffer, every further use throws an IllegalStateException
+	@Override
+	public void close() {
+		mBytes = null;
+	}
+
+	// return true if negative, false otherwise
+	public boolean isNegative() {
+		bytes();
+		return mNegative;
+	}
+
+	// return -1 if negative, +1 if positive and 0 otherwise
+	public int getSign() {
+		bytes();
+		return mSize == 0 ? 0 : mNegative ? -1 : 1;
+	}
+
+	// return size, i.e. the number of decimal digits
+	public int getSize() {
+		IntBuffer limbs = limbs();
+		if (mSize == 0)
+			return 0;
+		return (mSize - 1) * DecimalInt.BASE_DIGITS + DecimalInt.digitCount(limbs.get(mSize - 1));
+	}
+
+	public static int compare(OffHeapDecimalInt lhs, OffHeapDecimalInt rhs) {
+		int lhsSign = lhs.getSign();
+		int rhsSign = rhs.getSign();
+		if (lhsSign != rhsSign)
+			return lhsSign < rhsSign ? -1 : 1;
+		return lhsSign * compareMagnitudes(lhs, rhs);
+	}
+
+	public static OffHeapDecimalInt add(OffHeapDecimalInt lhs, OffHeapDecimalInt rhs) {
+		return addHelper(lhs, rhs, false);
+	}
+
+	public static OffHeapDecimalInt subtract(OffHeapDecimalInt lhs, OffHeapDecimalInt rhs) {
+		return addHelper(lhs, rhs, true);
+	}
+
+	// add or subtract like DecimalInt.addHelper, the magnitudes are added if the effective signs agree,
+	// otherwise the smaller one is subtracted from the larger one
+	private static OffHeapDecimalInt addHelper(OffHeapDecimalInt lhs, OffHeapDecimalInt rhs, boolean subtract) {
+		boolean rhsNegative = rhs.isNegative() ^ subtract;
+		if (lhs.isNegative() == rhsNegative) {
+			return lhs.mSize >= rhs.mSize ? addMagnitudes(lhs, rhs, rhsNegative) : addMagnitudes(rhs, lhs, rhsNegative);
+		}
+		if (compareMagnitudes(lhs, rhs) >= 0)
+			return subtractMagnitudes(lhs, rhs, lhs.mNegative);
+		return subtractMagnitudes(rhs, lhs, rhsNegative);
+	}
+
+	// compare the magnitudes chunk by chunk from the top
+	private static int compareMagnitudes(OffHeapDecimalInt lhs, OffHeapDecimalInt rhs) {
+		if (lhs.mSize != rhs.mSize)
+			return lhs.mSize < rhs.mSize ? -1 : 1;
+		int[] x = new int[Math.min(CHUNK_LIMBS, lhs.mSize)];
+		int[] y = new int[x.length];
+		for (int to = lhs.mSize; to > 0; to -= CHUNK_LIMBS) {
+			int from = Math.max(to - CHUNK_LIMBS, 0);
+			lhs.load(from, to - from, x);
+			rhs.load(from, to - from, y);
+			int result = Limbs.compare(x, to - from, y, to - from);
+			if (result != 0)
+				return result;
+		}
+		return 0;
+	}
+
+	// |a| + |b| for a with at least as many limbs as b
+	private static OffHeapDecimalInt addMagnitudes(OffHeapDecimalInt a, OffHeapDecimalInt b, boolean negative) {
+		ByteBuffer result = allocate(a.mSize + 1);
+		IntBuffer limbs = result.asIntBuffer();
+		int[] x = new int[Math.min(CHUNK_LIMBS, a.mSize)];
+		int[] y = new int[x.length];
+		int carry = 0;
+		for (int from = 0; from < a.mSize; from += CHUNK_LIMBS) {
+			int n = Math.min(CHUNK_LIMBS, a.mSize - from);
+			a.load(from, n, x);
+			b.load(from, n, y);
+			carry = Limbs.addWithCarry(x, y, n, carry, x);
+			limbs.put(x, 0, n);
+		}
+		limbs.put(carry);
+		return new OffHeapDecimalInt(result, a.mSize + carry, negative);
+	}
+
+	// |a| - |b| for |a| >= |b|
+	private static OffHeapDecimalInt subtractMagnitudes(OffHeapDecimalInt a, OffHeapDecimalInt b, boolean negative) {
+		ByteBuffer result = allocate(a.mSize);
+		IntBuffer limbs = result.asIntBuffer();
+		int[] x = new int[Math.min(CHUNK_LIMBS, a.mSize)];
+		int[] y = new int[x.length];
+		int borrow = 0;
+		int size = 0;
+		for (int from = 0; from < a.mSize; from += CHUNK_LIMBS) {
+			int n = Math.min(CHUNK_LIMBS, a.mSize - from);
+			a.load(from, n, x);
+			b.load(from, n, y);
+			borrow = Limbs.subtractWithBorrow(x, y, n, borrow, x);
+			limbs.put(x, 0, n);
+			// the size without leading zero limbs
+			int chunkSize = Limbs.normalize(x, n);
+			if (chunkSize > 0)
+				size = from + chunkSize;
+		}
+		return new OffHeapDecimalInt(result, size, negative);
+	}
+
+	// copy the limbs [from, from+n) to dst, with zeros above the top limb
+	private void load(int from, int n, int[] dst) {
+		int available = Math.max(Math.min(n, mSize - from), 0);
+		if (available > 0) {
+			IntBuffer limbs = limbs();
+			limbs.position(from);
+			limbs.get(dst, 0, available);
+		}
+		Arrays.fill(dst, available, n, 0);
+	}
+
+	private ByteBuffer bytes() {
+		if (mBytes == null)
+			throw new IllegalStateException("Number is closed.");
+		return mBytes;
+	}
+
+	// a new view of the limbs, so that concurrent readers never share a position
+	private IntBuffer limbs() {
+		return bytes().asIntBuffer();
+	}
+
+	private static ByteBuffer allocate(int limbs) {
+		return ByteBuffer.allocateDirect(4 * limbs).order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
@@ -0,0 +1,44 @@
+package de.backson.apm;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// sieve of Eratosthenes for all primes up to a limit
+final class PrimeSieve {
+
+	private final int[] mPrimes;
+
+	PrimeSieve(int limit) {
+		if (limit < 2) {
+			mPrimes = new int[0];
+			return;
+		}
+
+		// only odd numbers are sieved, bit i stands for 2i+1
+		int size = (limit - 1) / 2 + 1;
+		BitSet composite = new BitSet(size);
+		for (int i = 1; (long)(2 * i + 1) * (2 * i + 1) <= limit; ++i) {
+			if (!composite.get(i)) {
+				int p = 2 * i + 1;
+				// start at p^2, every second multiple of p is even
+				for (long j = (long)p * p / 2; j < size; j += p) {
+					composite.set((int)j);
+				}
+			}
+		}
+
+		// by the prime number theorem there are fewer than 1.26 n / ln n primes up to n
+		int[] primes = new int[(int)(1.26 * limit / Math.log(limit)) + 2];
+		int count = 0;
+		primes[count++] = 2;
+		for (int i = composite.nextClearBit(1); i < size; i = composite.nextClearBit(i + 1)) {
+			primes[count++] = 2 * i + 1;
+		}
+		mPrimes = Arrays.copyOf(primes, count);
+	}
+
+	// return the primes in ascending order, the array must not be modified
+	int[] getPrimes() {
+		return mPrimes;
+	}
+}
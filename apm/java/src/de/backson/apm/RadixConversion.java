@@ -0,0 +1,200 @@
+package de.backson.apm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// conversion between the limbs in base 10^9 and digits in other radices
+// both directions split the number at powers radix^(g*2^j), where g digits fit into one limb,
+// so that all the work is done by the fast multiplication and division in O(M(n) log n)
+final class RadixConversion {
+
+	private static final int BASE = DecimalInt.BASE;
+
+	// numbers with at most this many limbs are converted directly with single limb arithmetic
+	private static final int LEAF_LIMBS = 32;
+
+	// the largest power in limbs that is kept for later conversions, larger ones only live for one conversion
+	private static final int CACHED_LIMBS = 1 << 14;
+	// the shared powers of every radix, indexed by the radix, guarded by the array itself
+	private static final DecimalInt[][] POWER_CACHE = new DecimalInt[Character.MAX_RADIX + 1][];
+
+	private RadixConversion() {
+	}
+
+	// the powers radix^(g*2^j) of one radix, computed by repeated squaring as needed
+	// powers with at most CACHED_LIMBS limbs are kept in POWER_CACHE and shared between all conversions
+	private static final class PowerTree {
+		final int mRadix;
+		// number of digits per limb, i.e. the largest g with radix^g < BASE
+		final int mDigitsPerLimb;
+		// radix^digitsPerLimb
+		final int mLimbRadix;
+		private final List<DecimalInt> mPowers = new ArrayList<>();
+
+		PowerTree(int radix) {
+			mRadix = radix;
+			int digits = 0;
+			long power = 1;
+			while (power * radix < BASE) {
+				power *= radix;
+				++digits;
+			}
+			mDigitsPerLimb = digits;
+			mLimbRadix = (int)power;
+
+			DecimalInt[] cached;
+			synchronized (POWER_CACHE) {
+				cached = POWER_CACHE[radix];
+			}
+			if (cached != null)
+				mPowers.addAll(Arrays.asList(cached));
+			else
+				mPowers.add(DecimalInt.valueOf(power));
+		}
+
+		// return radix^(digitsPerLimb*2^j)
+		DecimalInt get(int j) {
+			while (mPowers.size() <= j) {
+				DecimalInt last = mPowers.get(mPowers.size() - 1);
+				DecimalInt next = DecimalInt.square(last);
+				mPowers.add(next);
+				if (next.getLimbCount() <= CACHED_LIMBS)
+					publish();
+			}
+			return mPowers.get(j);
+		}
+
+		// share the powers computed so far, unless another conversion has computed more of them
+		private void publish() {
+			synchronized (POWER_CACHE) {
+				DecimalInt[] cached = POWER_CACHE[mRadix];
+				if (cached == null || cached.length < mPowers.size())
+					POWER_CACHE[mRadix] = mPowers.toArray(new DecimalInt[0]);
+			}
+		}
+
+		// return the number of digits of radix^(digitsPerLimb*2^j)
+		int digits(int j) {
+			return mDigitsPerLimb << j;
+		}
+	}
+
+	// convert digits[from, to), most significant first and each below the radix, into a nonnegative number
+	static DecimalInt fromDigits(byte[] digits, int from, int to, int radix) {
+		return fromDigits(digits, from, to, new PowerTree(radix));
+	}
+
+	private static DecimalInt fromDigits(byte[] digits, int from, int to, PowerTree powers) {
+		int length = to - from;
+		if (length <= powers.mDigitsPerLimb * LEAF_LIMBS) {
+			return fromDigitsLeaf(digits, from, to, powers);
+		}
+
+		// split off the largest block of digitsPerLimb*2^j digits that is shorter than the whole,
+		// then value = high * radix^(digitsPerLimb*2^j) + low
+		int j = 31 - Integer.numberOfLeadingZeros((length - 1) / powers.mDigitsPerLimb);
+		int split = to - powers.digits(j);
+		DecimalInt high = fromDigits(digits, from, split, powers);
+		DecimalInt low = fromDigits(digits, split, to, powers);
+		return DecimalInt.add(DecimalInt.multiply(high, powers.get(j)), low);
+	}
+
+	// Horner's scheme with groups of digitsPerLimb digits
+	private static DecimalInt fromDigitsLeaf(byte[] digits, int from, int to, PowerTree powers) {
+		int length = to - from;
+		// every group adds at most one limb
+		int[] data = new int[length / powers.mDigitsPerLimb + 2];
+		int size = 0;
+
+		// the first group takes the digits that do not fill a whole group
+		int group = length % powers.mDigitsPerLimb;
+		if (group == 0)
+			group = powers.mDigitsPerLimb;
+		for (int i = from; i < to; i += group, group = powers.mDigitsPerLimb) {
+			int chunk = 0;
+			int factor = 1;
+			for (int k = i; k < i + group; ++k) {
+				chunk = chunk * powers.mRadix + digits[k];
+				factor *= powers.mRadix;
+			}
+			size = Limbs.multiplyByLimb(data, size, factor, data);
+
+			// add the chunk, which is smaller than one limb
+			long carry = chunk;
+			for (int k = 0; carry != 0; ++k) {
+				long sum = (k < size ? data[k] : 0) + carry;
+				data[k] = (int)(sum % BASE);
+				carry = sum / BASE;
+				if (k >= size)
+					size = k + 1;
+			}
+		}
+		return DecimalInt.fromLimbs(data, size, false);
+	}
+
+	// return the digits of a number in the given radix, with lowercase letters like Character.forDigit
+	static String toString(DecimalInt value, int radix) {
+		if (value.getSign() == 0)
+			return "0";
+
+		StringBuilder sb = new StringBuilder();
+		if (value.isNegative())
+			sb.append('-');
+		int[] limbs = value.getLimbData();
+		appendDigits(DecimalInt.fromLimbs(limbs, value.getLimbCount(), false), 0, new PowerTree(radix), sb);
+		return sb.toString();
+	}
+
+	// append the digits of a nonnegative number, padded with zeros to 'digits' digits if that is not zero
+	private static void appendDigits(DecimalInt value, int digits, PowerTree powers, StringBuilder sb) {
+		int size = value.getLimbCount();
+		if (size <= LEAF_LIMBS) {
+			appendDigitsLeaf(value, digits, powers, sb);
+			return;
+		}
+
+		// split at the largest power with at most half the limbs, which is always smaller than the value
+		int j = 0;
+		while (powers.get(j + 1).getLimbCount() <= (size + 1) / 2) {
+			++j;
+		}
+		DecimalInt[] qr = DecimalInt.divide(value, powers.get(j));
+		int lowDigits = powers.digits(j);
+		appendDigits(qr[0], digits > 0 ? digits - lowDigits : 0, powers, sb);
+		appendDigits(qr[1], lowDigits, powers, sb);
+	}
+
+	// repeated division by radix^digitsPerLimb, producing one group of digits per step
+	private static void appendDigitsLeaf(DecimalInt value, int digits, PowerTree powers, StringBuilder sb) {
+		int size = value.getLimbCount();
+		int[] data = new int[size];
+		if (size > 0)
+			System.arraycopy(value.getLimbData(), 0, data, 0, size);
+
+		// every limb has fewer than 30 binary digits
+		char[] chars = new char[Math.max(digits, size * 30 + powers.mDigitsPerLimb)];
+		int pos = chars.length;
+		while (size > 0) {
+			int chunk = (int)Limbs.divideBySmall(data, size, powers.mLimbRadix, data);
+			size = Limbs.normalize(data, size);
+			for (int k = 0; k < powers.mDigitsPerLimb; ++k) {
+				chars[--pos] = Character.forDigit(chunk % powers.mRadix, powers.mRadix);
+				chunk /= powers.mRadix;
+			}
+		}
+
+		// remove the leading zeros of the last group, or pad to the requested number of digits
+		int start = pos;
+		while (start < chars.length - 1 && chars[start] == '0') {
+			++start;
+		}
+		if (digits > 0) {
+			start = chars.length - digits;
+			for (int k = start; k < pos; ++k) {
+				chars[k] = '0';
+			}
+		}
+		sb.append(chars, start, chars.length - start);
+	}
+}
@@ -0,0 +1,93 @@
+package de.backson.apm.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import de.backson.apm.DecimalInt;
+import de.backson.apm.DecimalIntAccumulator;
+
+class DecimalIntAccumulatorTest {
+
+	long[] data = {
+			0, 1, -1, 9, -9, 10, 999999999, 1000000000, -999999999, -1000000000,
+			999999999999999999L, -999999999999999999L, 1000000000000000000L,
+			Long.MAX_VALUE, Long.MIN_VALUE,
+	};
+
+	@Test
+	void testAcceptLong() {
+		DecimalIntAccumulator sum = new DecimalIntAccumulator();
+		BigInteger expected = BigInteger.ZERO;
+		assertEquals("0", sum.get().toString());
+		for (long x : data) {
+			sum.accept(x);
+			expected = expected.add(BigInteger.valueOf(x));
+			assertEquals(expected.toString(), sum.get().toString());
+		}
+		// the sum can go negative and back
+		for (int i = 0; i < 3; ++i) {
+			sum.accept(Long.MIN_VALUE);
+			expected = expected.add(BigInteger.valueOf(Long.MIN_VALUE));
+			assertEquals(expected.toString(), sum.toString());
+		}
+	}
+
+	@Test
+	void testRunningSum() {
+		Random random = new Random(5);
+		DecimalIntAccumulator sum = new DecimalIntAccumulator();
+		BigInteger expected = BigInteger.ZERO;
+		for (int i = 0; i < 2000; ++i) {
+			BigInteger value = new BigInteger(1 + random.nextInt(300), random);
+			if (random.nextInt(3) == 0)
+				value = value.negate();
+			sum.accept(new DecimalInt(value.toString()));
+			expected = expected.add(value);
+			if (i % 100 == 0)
+				assertEquals(expected.toString(), sum.get().toString());
+		}
+		assertEquals(expected.toString(), sum.get().toString());
+	}
+
+	@Test
+	void testCombine() {
+		Random random = new Random(7);
+		DecimalIntAccumulator a = new DecimalIntAccumulator();
+		DecimalIntAccumulator b = new DecimalIntAccumulator();
+		BigInteger expected = BigInteger.ZERO;
+		for (int i = 0; i < 500; ++i) {
+			BigInteger value = new BigInteger(1 + random.nextInt(500), random).subtract(BigInteger.ONE.shiftLeft(100));
+			(i % 2 == 0 ? a : b).accept(new DecimalInt(value.toString()));
+			expected = expected.add(value);
+		}
+		BigInteger second = new BigInteger(b.get().toString());
+		a.combine(b);
+		assertEquals(expected.toString(), a.get().toString());
+		assertEquals(second.toString(), b.get().toString());
+		a.combine(a);
+		assertEquals(expected.shiftLeft(1).toString(), a.get().toString());
+	}
+
+	@Test
+	void testSumming() {
+		Random random = new Random(11);
+		List<DecimalInt> values = new ArrayList<>();
+		BigInteger expected = BigInteger.ZERO;
+		for (int i = 0; i < 20000; ++i) {
+			BigInteger value = new BigInteger(1 + random.nextInt(400), random);
+			if (random.nextBoolean())
+				value = value.negate();
+			values.add(new DecimalInt(value.toString()));
+			expected = expected.add(value);
+		}
+		assertEquals(expected.toString(), values.stream().collect(DecimalInt.summing()).toString());
+		assertEquals(expected.toString(), values.parallelStream().collect(DecimalInt.summing()).toString());
+		assertEquals("0", new ArrayList<DecimalInt>().stream().collect(DecimalInt.summing()).toString());
+	}
+}
@@ -1,12 +1,38 @@
 package de.backson.apm.tests;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import de.backson.apm.DecimalInt;
 
@@ -286,4 +312,758 @@ class DecimalIntTest {
 		assertEquals("20", DecimalInt.combinations(6, 3).toString());
 		assertEquals("4027810484880", DecimalInt.combinations(65, 12).toString());
 	}
+	
+	// random numbers with up to 'maxDigits' digits that span several limbs
+	private static String[] randomNumbers(long seed, int count, int maxDigits) {
+		Random random = new Random(seed);
+		String[] numbers = new String[count];
+		for (int i = 0; i < count; ++i) {
+			int digits = 1 + random.nextInt(maxDigits);
+			StringBuilder sb = new StringBuilder();
+			if (random.nextBoolean())
+				sb.append('-');
+			sb.append((char)('1' + random.nextInt(9)));
+			for (int j = 1; j < digits; ++j)
+				sb.append((char)('0' + random.nextInt(10)));
+			numbers[i] = sb.toString();
+		}
+		return numbers;
+	}
+	
+	@Test
+	void testLargeNumbers() {
+		String[] numbers = randomNumbers(42, 40, 60);
+		for (String a : numbers) {
+			assertEquals(a, new DecimalInt(a).toString());
+			assertEquals(a.replace("-", "").length(), new DecimalInt(a).getSize());
+			for (String b : numbers) {
+				DecimalInt x = new DecimalInt(a);
+				DecimalInt y = new DecimalInt(b);
+				BigInteger bx = new BigInteger(a);
+				BigInteger by = new BigInteger(b);
+				assertEquals(bx.add(by).toString(), DecimalInt.add(x, y).toString());
+				assertEquals(bx.subtract(by).toString(), DecimalInt.subtract(x, y).toString());
+				assertEquals(bx.multiply(by).toString(), DecimalInt.multiply(x, y).toString());
+				BigInteger[] expected = bx.divideAndRemainder(by);
+				DecimalInt[] z = DecimalInt.divide(x, y);
+				assertEquals(expected[0].toString(), z[0].toString(), "Incorrect quotient of division "+a+"/"+b);
+				assertEquals(expected[1].toString(), z[1].toString(), "Incorrect remainder of division "+a+"/"+b);
+			}
+		}
+	}
+	
+	@Test
+	void testMultiplyTiers() {
+		int karatsuba = DecimalInt.getKaratsubaThreshold();
+		int toomCook = DecimalInt.getToomCookThreshold();
+		String[] numbers = randomNumbers(7, 12, 2000);
+		try {
+			// tiny thresholds exercise the recursion of both algorithms down to the schoolbook multiplication
+			int[][] thresholds = {{2, 2}, {2, 1000}, {3, 7}, {4, 20}};
+			for (int[] t : thresholds) {
+				DecimalInt.setMultiplyThresholds(t[0], t[1]);
+				for (String a : numbers)
+				for (String b : numbers) {
+					BigInteger expected = new BigInteger(a).multiply(new BigInteger(b));
+					assertEquals(expected.toString(), DecimalInt.multiply(new DecimalInt(a), new DecimalInt(b)).toString());
+				}
+			}
+		} finally {
+			DecimalInt.setMultiplyThresholds(karatsuba, toomCook);
+		}
+		
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.setMultiplyThresholds(1, 10));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.setMultiplyThresholds(10, 5));
+	}
+	
+	@Test
+	void testMultiplyTransform() {
+		int karatsuba = DecimalInt.getKaratsubaThreshold();
+		int toomCook = DecimalInt.getToomCookThreshold();
+		int transform = DecimalInt.getTransformThreshold();
+		String[] numbers = randomNumbers(11, 12, 3000);
+		try {
+			DecimalInt.setMultiplyThresholds(2, 2);
+			DecimalInt.setTransformThreshold(1);
+			for (String a : numbers)
+			for (String b : numbers) {
+				BigInteger expected = new BigInteger(a).multiply(new BigInteger(b));
+				assertEquals(expected.toString(), DecimalInt.multiply(new DecimalInt(a), new DecimalInt(b)).toString());
+			}
+			
+			// all limbs at their maximum produce the largest coefficients of the convolution
+			String nines = "9".repeat(50000);
+			DecimalInt x = new DecimalInt(nines);
+			BigInteger expected = new BigInteger(nines).pow(2);
+			assertEquals(expected.toString(), DecimalInt.multiply(x, x).toString());
+			assertEquals(expected.toString(), DecimalInt.multiply(x, new DecimalInt(nines)).toString());
+		} finally {
+			DecimalInt.setMultiplyThresholds(karatsuba, toomCook);
+			DecimalInt.setTransformThreshold(transform);
+		}
+		
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.setTransformThreshold(0));
+	}
+	
+	@Test
+	void testDivideLarge() {
+		// divisors from a few limbs up to sizes that use the recursive division
+		String[] dividends = randomNumbers(13, 6, 20000);
+		String[] divisors = randomNumbers(17, 10, 8000);
+		for (String a : dividends)
+		for (String b : divisors) {
+			testDivideLarge(a, b);
+			// exact divisions and remainders of rhs-1 stress the corrections of the quotient estimates
+			String product = new BigInteger(a).multiply(new BigInteger(b)).toString();
+			testDivideLarge(product, b);
+			testDivideLarge(new BigInteger(product).add(new BigInteger(b).abs()).subtract(BigInteger.ONE).toString(), b);
+		}
+		
+		testDivideLarge("9".repeat(5000), "9".repeat(1000));
+		testDivideLarge("1" + "0".repeat(5000), "1" + "0".repeat(999) + "1");
+		testDivideLarge("1" + "0".repeat(5000), "9".repeat(1000));
+		testDivideLarge("-" + "5".repeat(3000), "1" + "0".repeat(700));
+	}
+	
+	private void testDivideLarge(String a, String b) {
+		BigInteger[] expected = new BigInteger(a).divideAndRemainder(new BigInteger(b));
+		DecimalInt[] z = DecimalInt.divide(new DecimalInt(a), new DecimalInt(b));
+		assertEquals(expected[0].toString(), z[0].toString(), "Incorrect quotient of division "+a+"/"+b);
+		assertEquals(expected[1].toString(), z[1].toString(), "Incorrect remainder of division "+a+"/"+b);
+	}
+	
+	// operands for the long overloads: all of the small data plus numbers spanning several limbs
+	private String[] longOperandNumbers() {
+		String[] large = randomNumbers(19, 10, 100);
+		// carries and borrows across the limbs of a long and beyond
+		String[] edges = {
+				"1000000000000000000", "-999999999999999999999999999", "1000000000000000000000000000",
+				"9223372036854775808", "-9223372036854775809", "18446744073709551616",
+		};
+		String[] numbers = new String[data.length + large.length + edges.length];
+		for (int i = 0; i < data.length; ++i)
+			numbers[i] = "" + data[i];
+		System.arraycopy(large, 0, numbers, data.length, large.length);
+		System.arraycopy(edges, 0, numbers, data.length + large.length, edges.length);
+		return numbers;
+	}
+	
+	@Test
+	void testLongOperands() {
+		long[] longs = {
+				0, 1, -1, 7, -7, 1000000000, -1000000000, Integer.MAX_VALUE, Integer.MIN_VALUE,
+				9223372036L, -9223372036L, 9223372037L, 999999999999999999L, Long.MAX_VALUE, Long.MIN_VALUE,
+		};
+		for (String a : longOperandNumbers())
+		for (long b : longs) {
+			DecimalInt x = new DecimalInt(a);
+			BigInteger bx = new BigInteger(a);
+			BigInteger by = BigInteger.valueOf(b);
+			assertEquals(bx.add(by).toString(), DecimalInt.add(x, b).toString());
+			assertEquals(bx.subtract(by).toString(), DecimalInt.subtract(x, b).toString());
+			assertEquals(bx.multiply(by).toString(), DecimalInt.multiply(x, b).toString());
+			if (b != 0) {
+				assertEquals(bx.divide(by).toString(), DecimalInt.divide(x, b).toString(), "Incorrect quotient of division "+a+"/"+b);
+				assertEquals(bx.remainder(by).longValueExact(), DecimalInt.mod(x, b), "Incorrect remainder of division "+a+"/"+b);
+			}
+		}
+		assertThrows(ArithmeticException.class, () -> DecimalInt.divide(new DecimalInt(1), 0L));
+		assertThrows(ArithmeticException.class, () -> DecimalInt.mod(new DecimalInt(1), 0L));
+	}
+	
+	@Test
+	void testFactorialLarge() {
+		BigInteger expected = BigInteger.ONE;
+		for (int n = 1; n <= 5000; ++n) {
+			expected = expected.multiply(BigInteger.valueOf(n));
+			if (n <= 300 || n % 997 == 0 || n == 5000)
+				assertEquals(expected.toString(), DecimalInt.factorial(n).toString(), "Incorrect factorial of "+n);
+		}
+	}
+	
+	@Test
+	void testCombinationsLarge() {
+		// Pascal's triangle covers both the multiplicative and the prime factorization branch
+		BigInteger[] row = {BigInteger.ONE};
+		for (int n = 1; n <= 200; ++n) {
+			BigInteger[] next = new BigInteger[n + 1];
+			next[0] = next[n] = BigInteger.ONE;
+			for (int k = 1; k < n; ++k)
+				next[k] = row[k - 1].add(row[k]);
+			row = next;
+			for (int k = 0; k <= n; ++k)
+				assertEquals(row[k].toString(), DecimalInt.combinations(n, k).toString(), "Incorrect combinations "+n+" over "+k);
+		}
+		
+		assertEquals(binomial(5000, 2500), DecimalInt.combinations(5000, 2500).toString());
+		assertEquals(binomial(100000, 7), DecimalInt.combinations(100000, 7).toString());
+		assertEquals(binomial(20000, 400), DecimalInt.combinations(20000, 400).toString());
+		
+		assertEquals("0", DecimalInt.combinations(3, 4).toString());
+		assertEquals("0", DecimalInt.combinations(3, -1).toString());
+	}
+	
+	private static String binomial(int n, int k) {
+		BigInteger result = BigInteger.ONE;
+		for (int i = 1; i <= k; ++i)
+			result = result.multiply(BigInteger.valueOf(n - k + i)).divide(BigInteger.valueOf(i));
+		return result.toString();
+	}
+	
+	@Test
+	void testMultiplyParallel() {
+		int karatsuba = DecimalInt.getKaratsubaThreshold();
+		int toomCook = DecimalInt.getToomCookThreshold();
+		int transform = DecimalInt.getTransformThreshold();
+		int parallel = DecimalInt.getParallelThreshold();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			DecimalInt.setForkJoinPool(pool);
+			DecimalInt.setParallelThreshold(1);
+			assertEquals(pool, DecimalInt.getForkJoinPool());
+			
+			// Karatsuba and Toom-Cook fork their sub-products
+			DecimalInt.setMultiplyThresholds(4, 20);
+			String[] numbers = randomNumbers(23, 6, 3000);
+			for (String a : numbers)
+			for (String b : numbers) {
+				BigInteger expected = new BigInteger(a).multiply(new BigInteger(b));
+				assertEquals(expected.toString(), DecimalInt.multiply(new DecimalInt(a), new DecimalInt(b)).toString());
+			}
+			
+			// the transform runs the primes and the blocks of long transforms in parallel
+			DecimalInt.setTransformThreshold(100);
+			String a = "123456789".repeat(20000);
+			String b = "9".repeat(150000);
+			BigInteger expected = new BigInteger(a).multiply(new BigInteger(b));
+			assertEquals(expected.toString(), DecimalInt.multiply(new DecimalInt(a), new DecimalInt(b)).toString());
+			
+			// product trees fork their halves
+			assertEquals(factorialOf(3000), DecimalInt.factorial(3000).toString());
+		} finally {
+			DecimalInt.setMultiplyThresholds(karatsuba, toomCook);
+			DecimalInt.setTransformThreshold(transform);
+			DecimalInt.setParallelThreshold(parallel);
+			DecimalInt.setForkJoinPool(null);
+			pool.shutdown();
+		}
+		assertEquals(ForkJoinPool.commonPool(), DecimalInt.getForkJoinPool());
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.setParallelThreshold(0));
+	}
+	
+	private static String factorialOf(int n) {
+		BigInteger result = BigInteger.ONE;
+		for (int i = 2; i <= n; ++i)
+			result = result.multiply(BigInteger.valueOf(i));
+		return result.toString();
+	}
+	
+	@Test
+	void testRadixConversion() {
+		Random random = new Random(31);
+		int[] radices = {2, 3, 7, 8, 10, 16, 36};
+		for (int bits : new int[]{1, 7, 30, 64, 100, 1000, 5000, 40000}) {
+			BigInteger x = new BigInteger(bits, random);
+			for (int radix : radices) {
+				DecimalInt d = new DecimalInt(x.toString());
+				assertEquals(x.toString(radix), d.toString(radix));
+				assertEquals(x.negate().toString(radix), DecimalInt.subtract(new DecimalInt(), d).toString(radix));
+			}
+			assertEquals(x.toString(), new DecimalInt("0x" + x.toString(16)).toString());
+			assertEquals(x.toString(), new DecimalInt("0b" + x.toString(2)).toString());
+			assertEquals(x.negate().toString(), new DecimalInt("-0x" + x.toString(16)).toString());
+		}
+		
+		// powers of the radix and their neighbours hit the boundaries of the power tree
+		for (int e : new int[]{7, 8, 224, 225, 448, 1000}) {
+			BigInteger p = BigInteger.valueOf(16).pow(e);
+			for (BigInteger x : new BigInteger[]{p.subtract(BigInteger.ONE), p, p.add(BigInteger.ONE)}) {
+				assertEquals(x.toString(16), new DecimalInt(x.toString()).toString(16));
+				assertEquals(x.toString(), new DecimalInt("0x" + x.toString(16)).toString());
+			}
+		}
+		
+		assertEquals("0", new DecimalInt().toString(16));
+		assertThrows(IllegalArgumentException.class, () -> new DecimalInt(1).toString(1));
+		assertThrows(IllegalArgumentException.class, () -> new DecimalInt(1).toString(37));
+	}
+	
+	@Test
+	void testParseInputs() {
+		String[] numbers = randomNumbers(37, 30, 200);
+		for (String s : numbers) {
+			String digits = s.startsWith("-") ? s.substring(1) : s;
+			for (String text : new String[]{s, "+" + digits, "-0" + digits, "00000000000" + digits}) {
+				BigInteger x = new BigInteger(text);
+				// surround the number with other characters to check the offsets
+				String padded = "1x" + text + "y2";
+				char[] chars = padded.toCharArray();
+				byte[] ascii = padded.getBytes(StandardCharsets.US_ASCII);
+				assertEquals(x.toString(), new DecimalInt(new StringBuilder(text)).toString());
+				assertEquals(x.toString(), new DecimalInt(chars, 2, text.length()).toString());
+				assertEquals(x.toString(), new DecimalInt(ascii, 2, text.length()).toString());
+			}
+		}
+		assertEquals("-255", new DecimalInt("-0xff".getBytes(StandardCharsets.US_ASCII), 0, 5).toString());
+		assertEquals("5", new DecimalInt("0b101".toCharArray(), 0, 5).toString());
+		assertEquals("0", new DecimalInt("-000".getBytes(StandardCharsets.US_ASCII), 0, 4).toString());
+		
+		// an invalid character inside a block of eight digits is found as well
+		for (String s : new String[]{"123456789a12345678", "12345678912345/78", "1234567891234567:", "1234567891234567\u00b2"}) {
+			assertThrows(IllegalArgumentException.class, () -> new DecimalInt(s.getBytes(StandardCharsets.ISO_8859_1), 0, s.length()));
+			assertThrows(IllegalArgumentException.class, () -> new DecimalInt(s.toCharArray(), 0, s.length()));
+		}
+		assertThrows(RuntimeException.class, () -> new DecimalInt(new byte[0], 0, 0));
+		assertThrows(IndexOutOfBoundsException.class, () -> new DecimalInt(new char[4], 2, 3));
+	}
+	
+	@Test
+	void testStreams(@TempDir Path directory) throws IOException {
+		// the longest numbers span several chunks
+		String[] numbers = randomNumbers(41, 8, 100000);
+		for (String s : numbers) {
+			DecimalInt d = new DecimalInt(s);
+			StringBuilder sb = new StringBuilder();
+			d.writeTo(sb);
+			assertEquals(d.toString(), sb.toString());
+			
+			Path file = directory.resolve("number.txt");
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				d.writeTo(channel);
+				channel.write(ByteBuffer.wrap("\n".getBytes(StandardCharsets.US_ASCII)));
+			}
+			assertEquals(d.toString() + "\n", Files.readString(file));
+			assertEquals(d, DecimalInt.readFrom(file));
+			
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			d.writeTo(Channels.newChannel(bytes));
+			assertEquals(d, DecimalInt.readFrom(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))));
+		}
+		
+		// a file channel is read from its current position
+		Path file = directory.resolve("numbers.txt");
+		Files.writeString(file, "123 -0x1f\r\n");
+		try (FileChannel channel = FileChannel.open(file)) {
+			channel.position(3);
+			assertEquals(new DecimalInt(-31), DecimalInt.readFrom(channel));
+		}
+		Files.writeString(file, " 12 3");
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.readFrom(file));
+	}
+	
+	@Test
+	void testBinaryFormat() throws IOException, ClassNotFoundException {
+		String[] numbers = randomNumbers(43, 40, 3000);
+		for (String s : numbers) {
+			DecimalInt d = new DecimalInt(s);
+			byte[] bytes = d.toByteArray();
+			assertEquals(d.getSerializedSize(), bytes.length);
+			assertEquals(d, DecimalInt.fromByteArray(bytes));
+			assertTrue(bytes.length <= 8 + s.length() / 2);
+			
+			// the buffer is used from its position on, regardless of its byte order
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 10).order(ByteOrder.BIG_ENDIAN);
+			buffer.position(3);
+			d.writeTo(buffer);
+			assertThrows(BufferOverflowException.class, () -> d.writeTo(ByteBuffer.allocate(bytes.length - 1)));
+			buffer.flip().position(3);
+			assertEquals(d, DecimalInt.readFrom(buffer));
+			assertEquals(3 + bytes.length, buffer.position());
+		}
+		
+		// zero is three bytes
+		assertEquals(3, new DecimalInt().toByteArray().length);
+		assertEquals(new DecimalInt(), DecimalInt.fromByteArray(new DecimalInt("-0").toByteArray()));
+		
+		// corrupted encodings
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.fromByteArray(new byte[]{2, 0, 0}));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.fromByteArray(new byte[]{1, 1, 0}));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.fromByteArray(new byte[]{1, 0, 1, 0, 0, 0, 0}));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.fromByteArray(new byte[]{1, 0, 1, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF}));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.fromByteArray(new byte[]{1, 0, 2, 1, 0, 0, 0}));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.fromByteArray(new byte[]{1, 0, (byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, 0x08}));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.fromByteArray(new byte[]{1, 0, 0, 0}));
+		assertThrows(BufferUnderflowException.class, () -> DecimalInt.fromByteArray(new byte[]{1, 0}));
+		
+		// serialization writes the same encoding
+		DecimalInt[] values = {new DecimalInt(), new DecimalInt(numbers[0]), new DecimalInt(numbers[1])};
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(values);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			DecimalInt[] read = (DecimalInt[])in.readObject();
+			for (int i = 0; i < values.length; ++i) {
+				assertEquals(values[i], read[i]);
+			}
+		}
+	}
+	
+	@Test
+	void testFormatting() {
+		String[] numbers = randomNumbers(47, 40, 200);
+		for (String s : numbers) {
+			String expected = new BigInteger(s).toString();
+			DecimalInt d = new DecimalInt(s);
+			assertEquals(expected, d.toString());
+			assertEquals(expected, new String(d.toCharArray()));
+			assertEquals("x" + expected, d.appendTo(new StringBuilder("x")).toString());
+		}
+		
+		// limbs with leading and trailing zeros
+		for (String s : new String[]{"0", "-1", "10", "99", "100", "999999999", "1000000000", "-1000000001", "100000000000000000000000000", "7000000000000000001"}) {
+			DecimalInt d = new DecimalInt(s);
+			assertEquals(s, d.toString());
+			assertEquals(s, new String(d.toCharArray()));
+			assertEquals(s, d.appendTo(new StringBuilder()).toString());
+		}
+	}
+	
+	@Test
+	void testValueOf() {
+		for (long l : new long[]{-129, -128, -1, 0, 1, 999, 1024, 1025, 1000000000, Long.MAX_VALUE, Long.MIN_VALUE}) {
+			DecimalInt d = DecimalInt.valueOf(l);
+			assertEquals(new DecimalInt(l), d);
+			assertEquals(new DecimalInt(l).hashCode(), d.hashCode());
+			assertEquals(Long.toString(l), d.toString());
+		}
+		
+		// small values and powers of ten are shared
+		assertSame(DecimalInt.valueOf(-128), DecimalInt.valueOf(-128));
+		assertSame(DecimalInt.valueOf(1024), DecimalInt.valueOf(1024));
+		assertSame(DecimalInt.getPowerOfTen(18), DecimalInt.valueOf(1000000000000000000L));
+		assertSame(DecimalInt.getPowerOfTen(40), DecimalInt.getPowerOfTen(40));
+		assertEquals(new DecimalInt("1" + "0".repeat(100)), DecimalInt.getPowerOfTen(100));
+		
+		// numbers are immutable, so adding zero needs no copy
+		DecimalInt x = new DecimalInt("-123456789123456789");
+		assertSame(x, DecimalInt.add(x, DecimalInt.valueOf(0)));
+		assertSame(x, DecimalInt.subtract(x, 0));
+		assertEquals(new DecimalInt("123456789123456789"), DecimalInt.subtract(DecimalInt.valueOf(0), x));
+		assertEquals("-123456789123456789", x.toString());
+		
+		// the shared zero cannot be overwritten by deserialization
+		assertThrows(InvalidObjectException.class, () -> DecimalInt.valueOf(0).readExternal(null));
+		assertThrows(InvalidObjectException.class, () -> x.readExternal(null));
+	}
+	
+	@Test
+	void testReadExternalKeepsValue() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			new DecimalInt("123456789012345").writeExternal(out);
+		}
+		// zeros from the constructors are no different from any other number
+		for (DecimalInt zero : new DecimalInt[]{new DecimalInt(), new DecimalInt("0"), new DecimalInt(0)}) {
+			Set<DecimalInt> set = new HashSet<>();
+			set.add(zero);
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				assertThrows(InvalidObjectException.class, () -> zero.readExternal(in));
+			}
+			assertEquals("0", zero.toString());
+			assertTrue(set.contains(zero));
+		}
+	}
+	
+	@Test
+	void testPow() {
+		String[] numbers = randomNumbers(53, 20, 300);
+		for (String s : numbers) {
+			BigInteger x = new BigInteger(s);
+			DecimalInt d = new DecimalInt(s);
+			for (int e : new int[]{0, 1, 2, 3, 7, 16, 31}) {
+				assertEquals(x.pow(e).toString(), DecimalInt.pow(d, e).toString());
+			}
+		}
+		assertEquals(BigInteger.valueOf(-3).pow(2001).toString(), DecimalInt.pow(DecimalInt.valueOf(-3), 2001).toString());
+		assertEquals("1", DecimalInt.pow(DecimalInt.valueOf(0), 0).toString());
+		assertEquals("0", DecimalInt.pow(DecimalInt.valueOf(0), 5).toString());
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.pow(DecimalInt.valueOf(2), -1));
+	}
+	
+	@Test
+	void testModPow() {
+		Random random = new Random(59);
+		// odd moduli take the Montgomery path unless they are multiples of five or very large
+		for (int bits : new int[]{2, 10, 31, 64, 100, 300, 1000, 3000}) {
+			for (int i = 0; i < 6; ++i) {
+				BigInteger m = new BigInteger(bits, random).add(BigInteger.ONE);
+				if (i == 0)
+					m = m.multiply(BigInteger.valueOf(5));
+				if (i == 1)
+					m = m.shiftLeft(1);
+				if (i == 2)
+					m = m.setBit(0);
+				BigInteger b = new BigInteger(bits + 20, random);
+				if (i == 3)
+					b = b.negate();
+				BigInteger e = new BigInteger(i == 4 ? 1000 : bits, random);
+				String expected = b.modPow(e, m).toString();
+				assertEquals(expected, DecimalInt.modPow(new DecimalInt(b.toString()), new DecimalInt(e.toString()), new DecimalInt(m.toString())).toString());
+			}
+		}
+		
+		DecimalInt seven = DecimalInt.valueOf(7);
+		assertEquals("1", DecimalInt.modPow(seven, DecimalInt.valueOf(0), DecimalInt.valueOf(13)).toString());
+		assertEquals("0", DecimalInt.modPow(seven, DecimalInt.valueOf(5), DecimalInt.valueOf(1)).toString());
+		assertEquals("0", DecimalInt.modPow(seven, DecimalInt.valueOf(0), DecimalInt.valueOf(1)).toString());
+		assertThrows(ArithmeticException.class, () -> DecimalInt.modPow(seven, seven, DecimalInt.valueOf(0)));
+		assertThrows(ArithmeticException.class, () -> DecimalInt.modPow(seven, seven, DecimalInt.valueOf(-7)));
+		// negative exponents use the inverse, which has to exist
+		assertEquals("2", DecimalInt.modPow(seven, DecimalInt.valueOf(-1), DecimalInt.valueOf(13)).toString());
+		assertEquals("4", DecimalInt.modPow(seven, DecimalInt.valueOf(-2), DecimalInt.valueOf(13)).toString());
+		assertThrows(ArithmeticException.class, () -> DecimalInt.modPow(seven, DecimalInt.valueOf(-1), seven));
+	}
+	
+	@Test
+	void testMultiplyAdd() {
+		String[] numbers = randomNumbers(83, 30, 800);
+		for (int i = 0; i + 2 < numbers.length; ++i) {
+			BigInteger a = new BigInteger(numbers[i]);
+			BigInteger b = new BigInteger(numbers[i + 1]);
+			BigInteger c = new BigInteger(numbers[i + 2]);
+			DecimalInt da = new DecimalInt(numbers[i]);
+			DecimalInt db = new DecimalInt(numbers[i + 1]);
+			DecimalInt dc = new DecimalInt(numbers[i + 2]);
+			assertEquals(a.multiply(b).add(c).toString(), DecimalInt.multiplyAdd(da, db, dc).toString());
+			assertEquals(a.multiply(b).subtract(c).toString(), DecimalInt.multiplySubtract(da, db, dc).toString());
+			// results that cancel completely or down to a single limb
+			DecimalInt product = DecimalInt.multiply(da, db);
+			assertEquals("0", DecimalInt.multiplySubtract(da, db, product).toString());
+			assertEquals("-1", DecimalInt.multiplySubtract(da, db, DecimalInt.add(product, 1)).toString());
+			assertEquals("1", DecimalInt.multiplyAdd(da, db, DecimalInt.subtract(DecimalInt.valueOf(1), product)).toString());
+		}
+		assertEquals("7", DecimalInt.multiplyAdd(DecimalInt.valueOf(0), DecimalInt.valueOf(5), DecimalInt.valueOf(7)).toString());
+		assertEquals("-7", DecimalInt.multiplySubtract(DecimalInt.valueOf(0), DecimalInt.valueOf(5), DecimalInt.valueOf(7)).toString());
+	}
+	
+	@Test
+	void testDot() {
+		// mixed sizes, so that both small and fast products are accumulated
+		String[] numbers = randomNumbers(89, 80, 1500);
+		DecimalInt[] xs = new DecimalInt[40];
+		DecimalInt[] ys = new DecimalInt[40];
+		BigInteger expected = BigInteger.ZERO;
+		for (int i = 0; i < xs.length; ++i) {
+			xs[i] = new DecimalInt(numbers[2 * i]);
+			ys[i] = new DecimalInt(numbers[2 * i + 1]);
+			expected = expected.add(new BigInteger(numbers[2 * i]).multiply(new BigInteger(numbers[2 * i + 1])));
+		}
+		assertEquals(expected.toString(), DecimalInt.dot(xs, ys).toString());
+		
+		// products of nines fill the wide limbs until their carries have to be propagated
+		String nines = "9".repeat(300);
+		for (String sign : new String[]{"", "-"}) {
+			DecimalInt[] a = new DecimalInt[100];
+			DecimalInt[] b = new DecimalInt[100];
+			Arrays.fill(a, new DecimalInt(sign + nines));
+			Arrays.fill(b, new DecimalInt(nines));
+			BigInteger n = new BigInteger(sign + nines);
+			assertEquals(n.multiply(new BigInteger(nines)).multiply(BigInteger.valueOf(100)).toString(), DecimalInt.dot(a, b).toString());
+		}
+		
+		assertEquals("0", DecimalInt.dot(new DecimalInt[0], new DecimalInt[0]).toString());
+		assertEquals("0", DecimalInt.dot(new DecimalInt[]{DecimalInt.valueOf(3), DecimalInt.valueOf(-3)},
+				new DecimalInt[]{DecimalInt.valueOf(4), DecimalInt.valueOf(4)}).toString());
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.dot(new DecimalInt[1], new DecimalInt[2]));
+	}
+	
+	@Test
+	void testGcd() {
+		Random random = new Random(67);
+		// the largest operands are reduced by half-gcd matrices, the others by Lehmer steps only
+		for (int bits : new int[]{3, 20, 60, 64, 130, 700, 7000, 30000}) {
+			for (int i = 0; i < 5; ++i) {
+				BigInteger common = new BigInteger(i == 0 ? 1 : bits / 3, random).add(BigInteger.ONE);
+				BigInteger a = new BigInteger(bits, random).multiply(common);
+				BigInteger b = new BigInteger(i == 1 ? bits / 8 : bits, random).multiply(common);
+				if (i == 2)
+					a = a.negate();
+				if (i == 3)
+					b = b.negate();
+				checkGcd(a, b);
+			}
+		}
+		
+		// consecutive Fibonacci numbers have only quotients of one
+		BigInteger f0 = BigInteger.ZERO;
+		BigInteger f1 = BigInteger.ONE;
+		for (int i = 0; i < 30000; ++i) {
+			BigInteger t = f0.add(f1);
+			f0 = f1;
+			f1 = t;
+		}
+		checkGcd(f1, f0);
+		
+		checkGcd(BigInteger.ZERO, BigInteger.ZERO);
+		checkGcd(BigInteger.valueOf(-12), BigInteger.ZERO);
+		checkGcd(BigInteger.ZERO, BigInteger.valueOf(12));
+		checkGcd(BigInteger.valueOf(12), BigInteger.valueOf(12));
+		checkGcd(BigInteger.TEN.pow(90), BigInteger.TEN.pow(45).add(BigInteger.ONE));
+	}
+	
+	private static void checkGcd(BigInteger a, BigInteger b) {
+		DecimalInt da = new DecimalInt(a.toString());
+		DecimalInt db = new DecimalInt(b.toString());
+		BigInteger g = a.gcd(b);
+		assertEquals(g.toString(), DecimalInt.gcd(da, db).toString());
+		
+		DecimalInt[] result = DecimalInt.extendedGcd(da, db);
+		assertEquals(g.toString(), result[0].toString());
+		BigInteger x = new BigInteger(result[1].toString());
+		BigInteger y = new BigInteger(result[2].toString());
+		assertEquals(g, a.multiply(x).add(b.multiply(y)));
+		if (b.signum() != 0)
+			assertTrue(x.abs().compareTo(b.abs().divide(g)) < 0);
+	}
+	
+	@Test
+	void testModInverse() {
+		Random random = new Random(71);
+		for (int bits : new int[]{2, 30, 64, 300, 3000, 20000}) {
+			for (int i = 0; i < 4; ++i) {
+				BigInteger m = new BigInteger(bits, random).add(BigInteger.ONE);
+				BigInteger v = new BigInteger(bits + 10, random);
+				if (i == 1)
+					v = v.negate();
+				if (!v.gcd(m).equals(BigInteger.ONE)) {
+					DecimalInt dv = new DecimalInt(v.toString());
+					DecimalInt dm = new DecimalInt(m.toString());
+					assertThrows(ArithmeticException.class, () -> DecimalInt.modInverse(dv, dm));
+					continue;
+				}
+				assertEquals(v.modInverse(m).toString(), DecimalInt.modInverse(new DecimalInt(v.toString()), new DecimalInt(m.toString())).toString());
+			}
+		}
+		
+		assertEquals("0", DecimalInt.modInverse(DecimalInt.valueOf(5), DecimalInt.valueOf(1)).toString());
+		assertThrows(ArithmeticException.class, () -> DecimalInt.modInverse(DecimalInt.valueOf(6), DecimalInt.valueOf(4)));
+		assertThrows(ArithmeticException.class, () -> DecimalInt.modInverse(DecimalInt.valueOf(3), DecimalInt.valueOf(0)));
+	}
+	
+	@Test
+	void testSquare() {
+		int karatsuba = DecimalInt.getKaratsubaThreshold();
+		int toomCook = DecimalInt.getToomCookThreshold();
+		int transform = DecimalInt.getTransformThreshold();
+		try {
+			// low thresholds send small numbers through every squaring path
+			DecimalInt.setMultiplyThresholds(4, 12);
+			DecimalInt.setTransformThreshold(60);
+			String[] numbers = randomNumbers(61, 30, 1500);
+			for (String s : numbers) {
+				BigInteger x = new BigInteger(s);
+				DecimalInt d = new DecimalInt(s);
+				String expected = x.multiply(x).toString();
+				assertEquals(expected, DecimalInt.square(d).toString());
+				assertEquals(expected, DecimalInt.multiply(d, d).toString());
+				assertEquals(expected, DecimalInt.multiply(d, new DecimalInt(s)).toString());
+			}
+		}
+		finally {
+			DecimalInt.setMultiplyThresholds(karatsuba, toomCook);
+			DecimalInt.setTransformThreshold(transform);
+		}
+		
+		// limbs of 999999999 produce the largest carries
+		DecimalInt nines = new DecimalInt("9".repeat(2000));
+		BigInteger big = new BigInteger("9".repeat(2000));
+		assertEquals(big.multiply(big).toString(), DecimalInt.square(nines).toString());
+		assertEquals("0", DecimalInt.square(new DecimalInt()).toString());
+	}
+	
+	@Test
+	void testSqrt() {
+		String[] numbers = randomNumbers(67, 40, 3000);
+		for (String s : numbers) {
+			BigInteger x = new BigInteger(s).abs();
+			for (BigInteger v : new BigInteger[]{x, x.multiply(x), x.multiply(x).subtract(BigInteger.ONE).max(BigInteger.ZERO)}) {
+				BigInteger[] expected = v.sqrtAndRemainder();
+				DecimalInt[] root = DecimalInt.sqrt(new DecimalInt(v.toString()));
+				assertEquals(expected[0].toString(), root[0].toString());
+				assertEquals(expected[1].toString(), root[1].toString());
+			}
+		}
+		for (long l = 0; l < 2000; ++l) {
+			assertEquals(Long.toString((long)Math.sqrt(l)), DecimalInt.sqrt(DecimalInt.valueOf(l))[0].toString());
+		}
+		assertThrows(ArithmeticException.class, () -> DecimalInt.sqrt(DecimalInt.valueOf(-1)));
+	}
+	
+	@Test
+	void testNthRoot() {
+		String[] numbers = randomNumbers(71, 12, 200);
+		for (String s : numbers) {
+			BigInteger r = new BigInteger(s).abs();
+			for (int n : new int[]{3, 4, 5, 7, 13, 40}) {
+				// the exact power and its neighbours
+				BigInteger power = r.pow(n);
+				for (BigInteger v : new BigInteger[]{power.subtract(BigInteger.ONE), power, power.add(BigInteger.ONE)}) {
+					if (v.signum() < 0)
+						continue;
+					BigInteger expected = v.compareTo(power) < 0 ? r.subtract(BigInteger.ONE) : r;
+					assertEquals(expected.toString(), DecimalInt.nthRoot(new DecimalInt(v.toString()), n).toString());
+				}
+			}
+		}
+		assertEquals("-3", DecimalInt.nthRoot(DecimalInt.valueOf(-28), 3).toString());
+		assertEquals("-3", DecimalInt.nthRoot(DecimalInt.valueOf(-27), 3).toString());
+		assertEquals("1", DecimalInt.nthRoot(DecimalInt.valueOf(5), 1000).toString());
+		assertEquals("12345", DecimalInt.nthRoot(DecimalInt.valueOf(12345), 1).toString());
+		assertEquals("0", DecimalInt.nthRoot(DecimalInt.valueOf(0), 7).toString());
+		assertThrows(ArithmeticException.class, () -> DecimalInt.nthRoot(DecimalInt.valueOf(-16), 4));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.nthRoot(DecimalInt.valueOf(16), 0));
+	}
+	
+	@Test
+	void testDecimalShifts() {
+		String[] numbers = randomNumbers(73, 40, 100);
+		for (String s : numbers) {
+			DecimalInt d = new DecimalInt(s);
+			BigInteger b = new BigInteger(s);
+			for (int shift : new int[]{0, 1, 5, 8, 9, 10, 17, 18, 27, 50, 99, 100, 150}) {
+				BigInteger power = BigInteger.TEN.pow(shift);
+				assertEquals(b.multiply(power).toString(), DecimalInt.shiftLeftDecimal(d, shift).toString());
+				BigInteger[] expected = b.divideAndRemainder(power);
+				DecimalInt[] actual = DecimalInt.shiftRightDecimal(d, shift);
+				assertEquals(expected[0].toString(), actual[0].toString());
+				assertEquals(expected[1].toString(), actual[1].toString());
+				assertEquals(b.abs().divide(power).mod(BigInteger.TEN).intValue(), d.digitAt(shift));
+			}
+		}
+		assertEquals("0", DecimalInt.shiftLeftDecimal(DecimalInt.valueOf(0), 20).toString());
+		assertEquals("0", DecimalInt.shiftRightDecimal(DecimalInt.valueOf(0), 20)[0].toString());
+		assertEquals(0, DecimalInt.valueOf(0).digitAt(0));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.shiftLeftDecimal(DecimalInt.valueOf(1), -1));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.shiftRightDecimal(DecimalInt.valueOf(1), -1));
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.valueOf(1).digitAt(-1));
+	}
+	
+	@Test
+	void testRoundToDigits() {
+		String[] numbers = randomNumbers(79, 40, 60);
+		String[] special = {"0", "5", "-5", "125", "135", "-125", "-135", "150", "-250", "999999999", "-999999999999999999",
+				"1000000000", "1000000001", "499999999500000000", "500000000000000000000000000", "-1500000000000000000000000000"};
+		for (String[] set : new String[][]{numbers, special}) {
+			for (String s : set) {
+				DecimalInt d = new DecimalInt(s);
+				BigDecimal b = new BigDecimal(s);
+				for (int digits : new int[]{1, 2, 3, 8, 9, 10, 18, 19, 30, 100}) {
+					assertEquals(b.round(new MathContext(digits, RoundingMode.DOWN)).toBigInteger().toString(), DecimalInt.truncateToDigits(d, digits).toString());
+					for (RoundingMode mode : RoundingMode.values()) {
+						String expected;
+						try {
+							expected = b.round(new MathContext(digits, mode)).toBigInteger().toString();
+						}
+						catch (ArithmeticException e) {
+							assertThrows(ArithmeticException.class, () -> DecimalInt.roundToDigits(d, digits, mode));
+							continue;
+						}
+						assertEquals(expected, DecimalInt.roundToDigits(d, digits, mode).toString(), s + " " + digits + " " + mode);
+					}
+				}
+			}
+		}
+		assertThrows(IllegalArgumentException.class, () -> DecimalInt.roundToDigits(DecimalInt.valueOf(1), 0, RoundingMode.UP));
+	}
 }
@@ -0,0 +1,96 @@
+package de.backson.apm.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import de.backson.apm.DecimalInt;
+import de.backson.apm.MutableDecimalInt;
+
+class MutableDecimalIntTest {
+
+	long[] data = {
+			0, 1, -1, 9, -9, 10, 999999999, 1000000000, -999999999, -1000000000,
+			999999999999999999L, -999999999999999999L, 1000000000000000000L,
+			Long.MAX_VALUE, Long.MIN_VALUE,
+	};
+
+	@Test
+	void testAddInPlace() {
+		for (long x : data)
+		for (long y : data) {
+			MutableDecimalInt m = new MutableDecimalInt(new DecimalInt(x));
+			m.addInPlace(new DecimalInt(y));
+			assertEquals(BigInteger.valueOf(x).add(BigInteger.valueOf(y)).toString(), m.toString());
+			m.subtractInPlace(new DecimalInt(y));
+			assertEquals(new DecimalInt(x), m.toDecimalInt());
+		}
+	}
+
+	@Test
+	void testRunningSum() {
+		Random random = new Random(3);
+		MutableDecimalInt sum = new MutableDecimalInt();
+		BigInteger expected = BigInteger.ZERO;
+		for (int i = 0; i < 2000; ++i) {
+			BigInteger value = new BigInteger(1 + random.nextInt(200), random);
+			if (random.nextBoolean())
+				value = value.negate();
+			sum.addInPlace(new DecimalInt(value.toString()));
+			expected = expected.add(value);
+			assertEquals(expected.signum(), sum.getSign());
+		}
+		assertEquals(expected.toString(), sum.toString());
+		assertEquals(expected.abs().toString().length(), sum.getSize());
+	}
+
+	@Test
+	void testMultiplyBySmall() {
+		int[] factors = {0, 1, -1, 2, 10, 999999999, 1000000000, Integer.MAX_VALUE, Integer.MIN_VALUE};
+		for (long x : data)
+		for (int f : factors) {
+			MutableDecimalInt m = new MutableDecimalInt(new DecimalInt(x));
+			m.multiplyBySmall(f);
+			assertEquals(BigInteger.valueOf(x).multiply(BigInteger.valueOf(f)).toString(), m.toString());
+		}
+
+		// 100! built in place
+		MutableDecimalInt factorial = new MutableDecimalInt(new DecimalInt(1));
+		for (int i = 2; i <= 100; ++i) {
+			factorial.multiplyBySmall(i);
+		}
+		assertEquals(DecimalInt.factorial(100), factorial.toDecimalInt());
+	}
+
+	@Test
+	void testShiftLeftDecimal() {
+		for (long x : data)
+		for (int digits = 0; digits < 30; ++digits) {
+			MutableDecimalInt m = new MutableDecimalInt(new DecimalInt(x));
+			m.shiftLeftDecimal(digits);
+			assertEquals(BigInteger.valueOf(x).multiply(BigInteger.TEN.pow(digits)).toString(), m.toString());
+		}
+		assertThrows(IllegalArgumentException.class, () -> new MutableDecimalInt().shiftLeftDecimal(-1));
+	}
+
+	@Test
+	void testResetAndImmutableCopy() {
+		MutableDecimalInt m = new MutableDecimalInt(new DecimalInt("123456789123456789123"));
+		DecimalInt copy = m.toDecimalInt();
+		m.addInPlace(new DecimalInt(1));
+		assertEquals("123456789123456789123", copy.toString());
+		assertEquals("123456789123456789124", m.toString());
+
+		m.reset();
+		assertEquals(0, m.getSign());
+		assertEquals("0", m.toString());
+		m.subtractInPlace(new DecimalInt(5));
+		assertEquals("-5", m.toString());
+		m.shrink();
+		assertEquals("-5", m.toString());
+	}
+}
@@ -0,0 +1,116 @@
+package de.backson.apm.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.backson.apm.DecimalInt;
+import de.backson.apm.OffHeapDecimalInt;
+
+class OffHeapDecimalIntTest {
+
+	// sizes around the chunk of 4096 limbs
+	private static BigInteger[] randomValues(long seed) {
+		Random random = new Random(seed);
+		int[] bits = {0, 1, 30, 100, 1000, 122000, 122400, 130000, 300000};
+		BigInteger[] values = new BigInteger[2 * bits.length];
+		for (int i = 0; i < bits.length; ++i) {
+			values[2 * i] = new BigInteger(bits[i], random);
+			values[2 * i + 1] = new BigInteger(bits[i], random).negate();
+		}
+		return values;
+	}
+
+	private static OffHeapDecimalInt offHeap(BigInteger value) {
+		return OffHeapDecimalInt.of(new DecimalInt(value.toString()));
+	}
+
+	@Test
+	void testRoundTrip() {
+		for (BigInteger value : randomValues(3)) {
+			OffHeapDecimalInt x = offHeap(value);
+			assertEquals(value.toString(), x.toDecimalInt().toString());
+			assertEquals(value.signum(), x.getSign());
+			assertEquals(value.signum() < 0, x.isNegative());
+			assertEquals(new DecimalInt(value.toString()).getSize(), x.getSize());
+		}
+	}
+
+	@Test
+	void testArithmetic() {
+		BigInteger[] values = randomValues(5);
+		for (BigInteger a : values)
+		for (BigInteger b : values) {
+			OffHeapDecimalInt x = offHeap(a);
+			OffHeapDecimalInt y = offHeap(b);
+			assertEquals(a.add(b).toString(), OffHeapDecimalInt.add(x, y).toDecimalInt().toString());
+			assertEquals(a.subtract(b).toString(), OffHeapDecimalInt.subtract(x, y).toDecimalInt().toString());
+			assertEquals(a.compareTo(b), OffHeapDecimalInt.compare(x, y));
+		}
+		// equal except for the lowest limb, and results that cancel down to a single limb
+		BigInteger a = BigInteger.TEN.pow(50000).subtract(BigInteger.ONE);
+		OffHeapDecimalInt x = offHeap(a);
+		OffHeapDecimalInt y = offHeap(a.subtract(BigInteger.TWO));
+		assertEquals(1, OffHeapDecimalInt.compare(x, y));
+		assertEquals(-1, OffHeapDecimalInt.compare(y, x));
+		assertEquals("2", OffHeapDecimalInt.subtract(x, y).toDecimalInt().toString());
+		assertEquals(0, OffHeapDecimalInt.subtract(x, x).getSign());
+		assertEquals(a.add(BigInteger.ONE).toString(), OffHeapDecimalInt.add(x, offHeap(BigInteger.ONE)).toDecimalInt().toString());
+	}
+
+	@Test
+	void testMap(@TempDir Path dir) throws IOException {
+		for (BigInteger value : randomValues(7)) {
+			DecimalInt d = new DecimalInt(value.toString());
+			Path file = dir.resolve("number.bin");
+			Files.write(file, d.toByteArray());
+			try (OffHeapDecimalInt x = OffHeapDecimalInt.map(file)) {
+				assertEquals(d, x.toDecimalInt());
+
+				// writing the mapped number gives the same file again
+				Path copy = dir.resolve("copy.bin");
+				try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					x.writeTo(channel);
+				}
+				assertEquals(d, DecimalInt.fromByteArray(Files.readAllBytes(copy)));
+			}
+		}
+
+		Path file = dir.resolve("invalid.bin");
+		byte[] bytes = new DecimalInt("123456789123456789").toByteArray();
+		Files.write(file, bytes);
+		Files.write(file, new byte[]{0}, StandardOpenOption.APPEND);
+		assertThrows(IllegalArgumentException.class, () -> OffHeapDecimalInt.map(file));
+		bytes[bytes.length - 1] = (byte)0xFF;
+		Files.write(file, bytes);
+		assertThrows(IllegalArgumentException.class, () -> OffHeapDecimalInt.map(file));
+		Files.write(file, new byte[]{1, 1, 0});
+		assertThrows(IllegalArgumentException.class, () -> OffHeapDecimalInt.map(file));
+		// a limb count with bit 31 set
+		Files.write(file, new byte[]{1, 0, (byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, 0x08});
+		assertThrows(IllegalArgumentException.class, () -> OffHeapDecimalInt.map(file));
+	}
+
+	@Test
+	void testClose() {
+		OffHeapDecimalInt x = offHeap(BigInteger.valueOf(42));
+		OffHeapDecimalInt y = offHeap(BigInteger.valueOf(7));
+		x.close();
+		x.close();
+		assertThrows(IllegalStateException.class, () -> x.toDecimalInt());
+		assertThrows(IllegalStateException.class, () -> x.getSign());
+		assertThrows(IllegalStateException.class, () -> OffHeapDecimalInt.add(x, y));
+		assertThrows(IllegalStateException.class, () -> OffHeapDecimalInt.compare(y, x));
+		assertEquals("7", y.toDecimalInt().toString());
+	}
+}